@@ -0,0 +1,64 @@
+package crux;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Generates code for `functions` functions that read and write their arguments, their locals
+// and a few globals over and over. The program is parsed and type checked up front so only
+// code generation is measured.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodeGenBenchmark {
+
+    @Param({"500"})
+    public int functions;
+
+    private ast.Command tree;
+    private types.TypeChecker checker;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StringBuilder program = new StringBuilder("var g0 : int;\nvar g1 : int;\nvar g2 : int;\n");
+        for (int f = 0; f < functions; f++) {
+            program.append("func f").append(f).append("(a : int, b : int, c : int) : int {\n");
+            for (int l = 0; l < 8; l++)
+                program.append("var l").append(l).append(" : int;\nlet l").append(l).append(" = a + ").append(l).append(";\n");
+            for (int s = 0; s < 20; s++) {
+                program.append("let l").append(s % 8).append(" = l").append((s + 1) % 8).append(" + b * c - g").append(s % 3).append(";\n");
+                program.append("let g").append(s % 3).append(" = g").append((s + 1) % 3).append(" + l").append(s % 8).append(";\n");
+            }
+            program.append("return l0;\n}\n");
+        }
+        program.append("func main() : void {\n::printInt(::f0(1, 2, 3));\n}\n");
+
+        Parser parser = new Parser(TokenBuffer.scan(Source.of(program.toString())));
+        tree = parser.parse();
+        checker = new types.TypeChecker();
+        checker.check(tree);
+        if (parser.hasError() || checker.hasError())
+            throw new IllegalStateException(parser.errorReport() + checker.errorReport());
+    }
+
+    @Benchmark
+    public mips.Program generate() {
+        mips.CodeGen codeGen = new mips.CodeGen(checker);
+        codeGen.generate(tree);
+        return codeGen.getProgram();
+    }
+}
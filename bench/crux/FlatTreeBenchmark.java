@@ -0,0 +1,114 @@
+package crux;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ast.FlatTree;
+
+// Counts the variable references in a big generated program by visiting the object tree, with a
+// cursor over the flat tree, and by reading the flat tree's kinds front to back.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlatTreeBenchmark {
+
+    @Param({"2000"})
+    public int functions;
+
+    private ast.Command tree;
+    private FlatTree flat;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StringBuilder program = new StringBuilder("var total : int;\n");
+        for (int f = 0; f < functions; f++) {
+            program.append("func f").append(f).append("(a : int, b : int) : int {\n");
+            program.append("var c : int;\nlet c = 0;\n");
+            for (int s = 0; s < 20; s++) {
+                program.append("if a < b { let c = c + a * ").append(s).append("; } else { let c = c - b; }\n");
+                program.append("while c > 100 { let c = c / 2; let total = total + 1; }\n");
+            }
+            program.append("return c;\n}\n");
+        }
+        tree = new Parser(TokenBuffer.scan(Source.of(program.toString()))).parse();
+        flat = FlatTree.of(tree);
+    }
+
+    // Counts the AddressOf nodes, walking everything else
+    private static final class References implements ast.CommandVisitor {
+        int count;
+
+        private void all(Iterable<? extends ast.Visitable> nodes) {
+            for (ast.Visitable node : nodes)
+                node.accept(this);
+        }
+
+        public void visit(ast.ExpressionList node) { all(node); }
+        public void visit(ast.DeclarationList node) { all(node); }
+        public void visit(ast.StatementList node) { all(node); }
+        public void visit(ast.AddressOf node) { count++; }
+        public void visit(ast.LiteralBool node) { }
+        public void visit(ast.LiteralFloat node) { }
+        public void visit(ast.LiteralInt node) { }
+        public void visit(ast.VariableDeclaration node) { }
+        public void visit(ast.ArrayDeclaration node) { }
+        public void visit(ast.FunctionDefinition node) { node.body().accept(this); }
+        public void visit(ast.Addition node) { node.leftSide().accept(this); node.rightSide().accept(this); }
+        public void visit(ast.Subtraction node) { node.leftSide().accept(this); node.rightSide().accept(this); }
+        public void visit(ast.Multiplication node) { node.leftSide().accept(this); node.rightSide().accept(this); }
+        public void visit(ast.Division node) { node.leftSide().accept(this); node.rightSide().accept(this); }
+        public void visit(ast.LogicalAnd node) { node.leftSide().accept(this); node.rightSide().accept(this); }
+        public void visit(ast.LogicalOr node) { node.leftSide().accept(this); node.rightSide().accept(this); }
+        public void visit(ast.LogicalNot node) { node.expression().accept(this); }
+        public void visit(ast.Comparison node) { node.leftSide().accept(this); node.rightSide().accept(this); }
+        public void visit(ast.Dereference node) { node.expression().accept(this); }
+        public void visit(ast.Index node) { node.base().accept(this); node.amount().accept(this); }
+        public void visit(ast.Assignment node) { node.destination().accept(this); node.source().accept(this); }
+        public void visit(ast.Call node) { node.arguments().accept(this); }
+        public void visit(ast.IfElseBranch node) { node.condition().accept(this); node.thenBlock().accept(this); node.elseBlock().accept(this); }
+        public void visit(ast.WhileLoop node) { node.condition().accept(this); node.body().accept(this); }
+        public void visit(ast.Return node) { node.argument().accept(this); }
+        public void visit(ast.Error node) { }
+    }
+
+    @Benchmark
+    public int objects() {
+        References references = new References();
+        tree.accept(references);
+        return references.count;
+    }
+
+    @Benchmark
+    public int cursor() {
+        int count = 0;
+        FlatTree.Cursor cursor = flat.cursor();
+        while (cursor.next())
+            if (cursor.kind() == FlatTree.Kind.ADDRESS_OF)
+                count++;
+        return count;
+    }
+
+    @Benchmark
+    public int scan() {
+        int count = 0;
+        for (int node = 0; node < flat.size(); node++)
+            if (flat.kind(node) == FlatTree.Kind.ADDRESS_OF)
+                count++;
+        return count;
+    }
+}
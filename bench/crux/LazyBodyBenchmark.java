@@ -0,0 +1,67 @@
+package crux;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// A signature only pass (the name and type of every function) over the tests/mips corpus,
+// with the bodies parsed up front or left until they are asked for, which they never are.
+// Run from the repository root so the corpus can be found.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LazyBodyBenchmark {
+
+    @Param({"false", "true"})
+    public boolean lazyBodies;
+
+    private List<TokenBuffer> corpus;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        corpus = new ArrayList<>();
+        for (int i = 1; ; i++) {
+            File in = new File((i < 10 ? "tests/mips/test0" : "tests/mips/test") + i + ".crx");
+            if (!in.exists())
+                break;
+            TokenBuffer tokens = TokenBuffer.scan(Source.readFile(in));
+            for (int c = 0; c < 100; c++)
+                corpus.add(tokens);
+        }
+    }
+
+    @Benchmark
+    public int signatures() {
+        int functions = 0;
+        for (TokenBuffer tokens : corpus) {
+            Parser parser = new Parser(tokens);
+            parser.setLazyBodies(lazyBodies);
+            ast.Command program = parser.parse();
+            if (!(program instanceof ast.DeclarationList))
+                continue;
+            for (ast.Declaration declaration : (ast.DeclarationList) program) {
+                if (declaration instanceof ast.FunctionDefinition && declaration.symbol().type() != null)
+                    functions++;
+            }
+        }
+        return functions;
+    }
+}
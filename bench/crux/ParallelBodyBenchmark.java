@@ -0,0 +1,58 @@
+package crux;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Parses one big program of `functions` functions with the bodies one after the other or all
+// at the same time on the common pool. The source is scanned up front so only parsing is measured.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelBodyBenchmark {
+
+    @Param({"2000"})
+    public int functions;
+
+    @Param({"false", "true"})
+    public boolean parallelBodies;
+
+    private TokenBuffer tokens;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StringBuilder program = new StringBuilder("var total : int;\n");
+        for (int f = 0; f < functions; f++) {
+            program.append("func f").append(f).append("(a : int, b : int) : int {\n");
+            program.append("var c : int;\nlet c = 0;\n");
+            for (int s = 0; s < 20; s++) {
+                program.append("if a < b { let c = c + a * ").append(s).append("; } else { let c = c - b; }\n");
+                program.append("while c > 100 { let c = c / 2; let total = total + 1; }\n");
+            }
+            program.append("return c;\n}\n");
+        }
+        tokens = TokenBuffer.scan(Source.of(program.toString()));
+    }
+
+    @Benchmark
+    public ast.Command parse() {
+        Parser parser = new Parser(tokens);
+        parser.setParallelBodies(parallelBodies ? ForkJoinPool.commonPool() : null);
+        return parser.parse();
+    }
+}
@@ -0,0 +1,163 @@
+package crux;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Parses the tests/parser corpus, each file repeated `copies` times. The files are scanned
+// into TokenBuffers up front so only the parser is measured (FIRST set checks and dispatch).
+// predict() picks the declaration, statement, expression3 and operator alternative for every
+// token of the corpus, either with the parser's dispatch tables or with the chained HashSet
+// lookups the parser used before them, as a baseline. parse() does not depend on firstSets.
+// Run from the repository root so the corpus can be found.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserDispatchBenchmark {
+
+    @Param({"100"})
+    public int copies;
+
+    @Param({"table", "hashset"})
+    public String firstSets;
+
+    private List<TokenBuffer> corpus;
+
+    private static final byte[] DECLARATION = NonTerminal.dispatchTable(
+            NonTerminal.VARIABLE_DECLARATION.firstBits(), NonTerminal.ARRAY_DECLARATION.firstBits(),
+            NonTerminal.FUNCTION_DEFINITION.firstBits());
+    private static final byte[] STATEMENT = NonTerminal.dispatchTable(
+            NonTerminal.VARIABLE_DECLARATION.firstBits(), NonTerminal.CALL_STATEMENT.firstBits(),
+            NonTerminal.ASSIGNMENT_STATEMENT.firstBits(), NonTerminal.IF_STATEMENT.firstBits(),
+            NonTerminal.WHILE_STATEMENT.firstBits(), NonTerminal.RETURN_STATEMENT.firstBits());
+    private static final byte[] EXPRESSION3 = NonTerminal.dispatchTable(
+            NonTerminal.bits(Token.Kind.NOT), NonTerminal.bits(Token.Kind.OPEN_PAREN),
+            NonTerminal.DESIGNATOR.firstBits(), NonTerminal.CALL_EXPRESSION.firstBits(),
+            NonTerminal.LITERAL.firstBits());
+    private static final byte[] OPERATOR = NonTerminal.dispatchTable(
+            NonTerminal.OP0.firstBits(), NonTerminal.OP1.firstBits(), NonTerminal.OP2.firstBits());
+
+    //The FIRST sets as the HashSets the parser used to look tokens up in
+    private EnumMap<NonTerminal, Set<Token.Kind>> hashSets;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        corpus = new ArrayList<>();
+        for (int i = 1; ; i++) {
+            File in = new File((i < 10 ? "tests/parser/test0" : "tests/parser/test") + i + ".crx");
+            if (!in.exists())
+                break;
+            TokenBuffer tokens = TokenBuffer.scan(Source.readFile(in));
+            for (int c = 0; c < copies; c++)
+                corpus.add(tokens);
+        }
+        hashSets = new EnumMap<>(NonTerminal.class);
+        for (NonTerminal nt : NonTerminal.values())
+            hashSets.put(nt, new HashSet<>(nt.firstSet()));
+    }
+
+    @Benchmark
+    public int parse() {
+        int errors = 0;
+        for (TokenBuffer tokens : corpus) {
+            Parser parser = new Parser(tokens);
+            parser.parse();
+            if (parser.hasError())
+                errors++;
+        }
+        return errors;
+    }
+
+    @Benchmark
+    public int predict() {
+        int alternatives = 0;
+        boolean table = firstSets.equals("table");
+        for (TokenBuffer tokens : corpus) {
+            for (int i = 0; i < tokens.size(); i++) {
+                Token.Kind kind = tokens.kind(i);
+                if (table) {
+                    int ordinal = kind.ordinal();
+                    alternatives += DECLARATION[ordinal] + STATEMENT[ordinal] + EXPRESSION3[ordinal] + OPERATOR[ordinal];
+                } else {
+                    alternatives += hashSetDeclaration(kind) + hashSetStatement(kind) + hashSetExpression3(kind) + hashSetOperator(kind);
+                }
+            }
+        }
+        return alternatives;
+    }
+
+    private boolean has(NonTerminal nt, Token.Kind kind) {
+        return hashSets.get(nt).contains(kind);
+    }
+
+    private int hashSetDeclaration(Token.Kind kind) {
+        if (has(NonTerminal.VARIABLE_DECLARATION, kind))
+            return 1;
+        else if (has(NonTerminal.ARRAY_DECLARATION, kind))
+            return 2;
+        else if (has(NonTerminal.FUNCTION_DEFINITION, kind))
+            return 3;
+        return 0;
+    }
+
+    private int hashSetStatement(Token.Kind kind) {
+        if (has(NonTerminal.VARIABLE_DECLARATION, kind))
+            return 1;
+        else if (has(NonTerminal.CALL_STATEMENT, kind))
+            return 2;
+        else if (has(NonTerminal.ASSIGNMENT_STATEMENT, kind))
+            return 3;
+        else if (has(NonTerminal.IF_STATEMENT, kind))
+            return 4;
+        else if (has(NonTerminal.WHILE_STATEMENT, kind))
+            return 5;
+        else if (has(NonTerminal.RETURN_STATEMENT, kind))
+            return 6;
+        return 0;
+    }
+
+    private int hashSetExpression3(Token.Kind kind) {
+        if (kind == Token.Kind.NOT)
+            return 1;
+        else if (kind == Token.Kind.OPEN_PAREN)
+            return 2;
+        else if (has(NonTerminal.DESIGNATOR, kind))
+            return 3;
+        else if (has(NonTerminal.CALL_EXPRESSION, kind))
+            return 4;
+        else if (has(NonTerminal.LITERAL, kind))
+            return 5;
+        return 0;
+    }
+
+    private int hashSetOperator(Token.Kind kind) {
+        if (has(NonTerminal.OP0, kind))
+            return 1;
+        else if (has(NonTerminal.OP1, kind))
+            return 2;
+        else if (has(NonTerminal.OP2, kind))
+            return 3;
+        return 0;
+    }
+}
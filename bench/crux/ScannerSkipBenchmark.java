@@ -0,0 +1,63 @@
+package crux;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Scans a comment heavy program with the scalar Skipper (one char at a time, like the Scanner always did)
+// and with the VectorSkipper.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class ScannerSkipBenchmark {
+
+    @Param({"scalar", "vector"})
+    public String skipper;
+
+    @Param({"20000"})
+    public int functions;
+
+    private Source source;
+    private Skipper skip;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < functions; i++) {
+            sb.append("// ---------------------------------------------------------------------------\n");
+            sb.append("// function").append(i).append(" was generated, do not edit it by hand\n");
+            sb.append("//\n");
+            sb.append("func function").append(i).append("(a : int) : int {\n");
+            sb.append("        // compute the next value\n");
+            sb.append("        var x : int;\n");
+            sb.append("        let x = a * ").append(i).append(" + 1;      // scale\n");
+            sb.append("        return x;\n");
+            sb.append("}\n\n");
+        }
+        source = Source.of(sb.toString());
+        skip = skipper.equals("vector") ? new VectorSkipper() : new Skipper();
+    }
+
+    @Benchmark
+    public int scan() {
+        Scanner scanner = new Scanner(source, 0, source.length(), skip);
+        int count = 0;
+        while (!scanner.next().is(Token.Kind.EOF))
+            count++;
+        return count;
+    }
+}
@@ -0,0 +1,82 @@
+package crux;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import types.Types;
+
+// Walks into `depth` nested blocks that each declare a local and look up a global and the locals,
+// then back out, with a chain of SymbolTables and with one FlatSymbolTable.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SymbolTableBenchmark {
+
+    @Param({"4", "32"})
+    public int depth;
+
+    private String[] locals;
+
+    //The flat table looks names up by their IDs, like the Resolver does
+    private Interner names;
+    private int globalId;
+    private int[] localIds;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        names = new NameTable();
+        globalId = names.intern("global");
+        locals = new String[depth];
+        localIds = new int[depth];
+        for (int d = 0; d < depth; d++) {
+            locals[d] = "local" + d;
+            localIds[d] = names.intern(locals[d]);
+        }
+    }
+
+    @Benchmark
+    public void chained(Blackhole blackhole) {
+        SymbolTable table = new SymbolTable(null, 0);
+        table.insert("global", Types.INT);
+        for (int d = 0; d < depth; d++) {
+            table = new SymbolTable(table, d + 1);
+            table.insert(locals[d], Types.INT);
+            blackhole.consume(table.lookup("global"));
+            for (int l = 0; l <= d; l++)
+                blackhole.consume(table.lookup(locals[l]));
+        }
+        for (int d = 0; d < depth; d++)
+            table = table.getParentTable();
+    }
+
+    @Benchmark
+    public void flat(Blackhole blackhole) {
+        FlatSymbolTable table = new FlatSymbolTable(names);
+        table.insert(new Symbol("global", globalId, Types.INT, -1));
+        for (int d = 0; d < depth; d++) {
+            table.enterScope();
+            table.insert(new Symbol(locals[d], localIds[d], Types.INT, -1));
+            blackhole.consume(table.lookup(globalId));
+            for (int l = 0; l <= d; l++)
+                blackhole.consume(table.lookup(localIds[l]));
+        }
+        for (int d = 0; d < depth; d++)
+            table.exitScope();
+    }
+}
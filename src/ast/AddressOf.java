@@ -2,22 +2,49 @@ package ast;
 
 public class AddressOf extends Command implements Expression {
 	
+	private String name;
+	private int nameId;
 	private crux.Symbol symbol;
 
-	public AddressOf(int lineNum, int charPos, crux.Symbol sym) {
-		super(lineNum, charPos);
+	public AddressOf(Nodes nodes, int location, crux.Symbol sym) {
+		super(nodes, location);
+		this.name = sym.name();
+		this.nameId = sym.id();
 		this.symbol = sym;
 	}
+
+	// Refers to name, the symbol is filled in by the Resolver
+	public AddressOf(Nodes nodes, int location, String name, int nameId) {
+		super(nodes, location);
+		this.name = name;
+		this.nameId = nameId;
+	}
 	
+	public String name()
+	{
+		return name;
+	}
+
+	// The name's ID from the compilation's crux.Interner
+	public int nameId()
+	{
+		return nameId;
+	}
+
 	public crux.Symbol symbol()
 	{
 		return symbol;
 	}
+
+	public void setSymbol(crux.Symbol symbol)
+	{
+		this.symbol = symbol;
+	}
 	
 	@Override
 	public String toString()
 	{
-		return super.toString() + "[" + symbol.name() + "]";
+		return super.toString() + "[" + (symbol != null ? symbol.name() : name) + "]";
 	}
 
 	@Override
@@ -6,9 +6,9 @@ public class ArrayDeclaration extends Command implements Declaration, Statement
 	
 	private Symbol symbol;
 	
-	public ArrayDeclaration(int lineNum, int charPos, Symbol symbol)
+	public ArrayDeclaration(Nodes nodes, int location, Symbol symbol)
 	{
-		super(lineNum, charPos);
+		super(nodes, location);
 		this.symbol = symbol;
 	}
 
@@ -16,6 +16,11 @@ public class ArrayDeclaration extends Command implements Declaration, Statement
 	public Symbol symbol() {
 		return symbol;
 	}
+
+	// The Resolver puts an error symbol here when the name was already declared
+	public void setSymbol(Symbol symbol) {
+		this.symbol = symbol;
+	}
 	
 	@Override
 	public String toString() {
@@ -5,8 +5,8 @@ public class Assignment extends Command implements Statement {
 	private Expression dest;
 	private Expression source;
 
-	public Assignment(int lineNum, int charPos, Expression dest, Expression source) {
-		super(lineNum, charPos);
+	public Assignment(Nodes nodes, int location, Expression dest, Expression source) {
+		super(nodes, location);
 		this.dest = dest;
 		this.source = source;
 	}
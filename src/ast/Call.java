@@ -4,19 +4,55 @@ import crux.Symbol;
 
 public class Call extends Command implements Statement, Expression {
 	
+	private String name;
+	private int nameId;
+	private int nameLocation;
 	private Symbol func;
 	private ExpressionList args;
 
-	public Call(int lineNum, int charPos, Symbol sym, ExpressionList args) {
-		super(lineNum, charPos);
+	public Call(Nodes nodes, int location, Symbol sym, ExpressionList args) {
+		super(nodes, location);
+		this.name = sym.name();
+		this.nameId = sym.id();
+		this.nameLocation = location;
 		this.func = sym;
 		this.args = args;
 	}
+
+	// Calls the function called name, the symbol is filled in by the Resolver
+	public Call(Nodes nodes, int location, String name, int nameId, int nameLocation, ExpressionList args) {
+		super(nodes, location);
+		this.name = name;
+		this.nameId = nameId;
+		this.nameLocation = nameLocation;
+		this.args = args;
+	}
 	
+	public String functionName()
+	{
+		return name;
+	}
+
+	// The name's ID from the compilation's crux.Interner
+	public int nameId()
+	{
+		return nameId;
+	}
+
+	public int nameLocation()
+	{
+		return nameLocation;
+	}
+
 	public Symbol function()
 	{
 		return func;
 	}
+
+	public void setFunction(Symbol func)
+	{
+		this.func = func;
+	}
 	
 	public ExpressionList arguments()
 	{
@@ -26,7 +62,7 @@ public class Call extends Command implements Statement, Expression {
 	@Override
 	public String toString()
 	{
-		return super.toString() + "[" + func + "]";
+		return super.toString() + "[" + (func != null ? func : name) + "]";
 	}
 
 	@Override
@@ -1,26 +1,47 @@
 package ast;
 
+import crux.Source;
 import crux.Token;
 
 public abstract class Command implements Visitable {
 	
-	private int lineNum;
-	private int charPos;
+	// The parse the node is from, its location is an offset into nodes.source()
+	private final Nodes nodes;
+	// Where the node starts. The line and char position are looked up when asked for.
+	private final int location;
+	// Dense among the nodes of the same parse, so what an analysis works out about a node can go in an array
+	private final int id;
 	
-	public Command(int lineNum, int charPos)
+	public Command(Nodes nodes, int location)
 	{
-		this.lineNum = lineNum;
-		this.charPos = charPos;
+		this.nodes = nodes;
+		this.location = location;
+		this.id = nodes.newId();
+	}
+	
+	public int location()
+	{
+		return location;
+	}
+	
+	public Nodes nodes()
+	{
+		return nodes;
+	}
+	
+	public int id()
+	{
+		return id;
 	}
 	
 	public int lineNumber()
 	{
-		return lineNum;
+		return nodes.source().lineNumber(location);
 	}
 	
 	public int charPosition()
 	{
-		return charPos;
+		return nodes.source().charPosition(location);
 	}
 	
 	@Override
@@ -29,42 +50,41 @@ public abstract class Command implements Visitable {
 		return this.getClass().getName() + "(" + lineNumber() + "," + charPosition() + ")";
 	}
 
-	public static Expression newExpression(Expression leftSide, Token op, Expression rightSide)
+	public static Expression newExpression(Nodes nodes, Expression leftSide, Token op, Expression rightSide)
 	{
-		int lineNum = op.lineNumber();
-		int charPos = op.charPosition();
+		int location = op.location();
 		
 		switch(op.kind())
 		{
-		case ADD: return new Addition(lineNum, charPos, leftSide, rightSide);
-		case SUB: return new Subtraction(lineNum, charPos, leftSide, rightSide);
-		case MUL: return new Multiplication(lineNum, charPos, leftSide, rightSide);
-		case DIV: return new Division(lineNum, charPos, leftSide, rightSide);
+		case ADD: return new Addition(nodes, location, leftSide, rightSide);
+		case SUB: return new Subtraction(nodes, location, leftSide, rightSide);
+		case MUL: return new Multiplication(nodes, location, leftSide, rightSide);
+		case DIV: return new Division(nodes, location, leftSide, rightSide);
 		
-		case AND: return new LogicalAnd(lineNum, charPos, leftSide, rightSide);
-		case OR:  return new LogicalOr(lineNum, charPos, leftSide, rightSide);
-		case NOT: return new LogicalNot(lineNum, charPos, leftSide);
+		case AND: return new LogicalAnd(nodes, location, leftSide, rightSide);
+		case OR:  return new LogicalOr(nodes, location, leftSide, rightSide);
+		case NOT: return new LogicalNot(nodes, location, leftSide);
 		
-		case LESS_THAN:     return new Comparison(lineNum, charPos, leftSide, Comparison.Operation.LT, rightSide);
-		case LESSER_EQUAL:  return new Comparison(lineNum, charPos, leftSide, Comparison.Operation.LE, rightSide);
-		case EQUAL:         return new Comparison(lineNum, charPos, leftSide, Comparison.Operation.EQ, rightSide);
-		case NOT_EQUAL:     return new Comparison(lineNum, charPos, leftSide, Comparison.Operation.NE, rightSide);
-		case GREATER_EQUAL: return new Comparison(lineNum, charPos, leftSide, Comparison.Operation.GE, rightSide);
-		case GREATER_THAN:  return new Comparison(lineNum, charPos, leftSide, Comparison.Operation.GT, rightSide);
+		case LESS_THAN:     return new Comparison(nodes, location, leftSide, Comparison.Operation.LT, rightSide);
+		case LESSER_EQUAL:  return new Comparison(nodes, location, leftSide, Comparison.Operation.LE, rightSide);
+		case EQUAL:         return new Comparison(nodes, location, leftSide, Comparison.Operation.EQ, rightSide);
+		case NOT_EQUAL:     return new Comparison(nodes, location, leftSide, Comparison.Operation.NE, rightSide);
+		case GREATER_EQUAL: return new Comparison(nodes, location, leftSide, Comparison.Operation.GE, rightSide);
+		case GREATER_THAN:  return new Comparison(nodes, location, leftSide, Comparison.Operation.GT, rightSide);
 		
-		default: return new Error(op.lineNumber(), op.charPosition(), "Unknown Operation: " + op);
+		default: return new Error(nodes, location, "Unknown Operation: " + op);
 		}
 	}
 	
-	public static Expression newLiteral(Token tok)
+	public static Expression newLiteral(Nodes nodes, Token tok)
 	{
 		switch(tok.kind())
 		{
-		case TRUE: return new LiteralBool(tok.lineNumber(), tok.charPosition(), LiteralBool.Value.TRUE);
-		case FALSE: return new LiteralBool(tok.lineNumber(), tok.charPosition(), LiteralBool.Value.FALSE);
-		case INTEGER: return new LiteralInt(tok.lineNumber(), tok.charPosition(), Integer.valueOf(tok.lexeme()));
-		case FLOAT: return new LiteralFloat(tok.lineNumber(), tok.charPosition(), Float.valueOf(tok.lexeme()));
-		default: return new Error(tok.lineNumber(), tok.charPosition(), "Unknown Operation: " + tok);
+		case TRUE: return new LiteralBool(nodes, tok.location(), LiteralBool.Value.TRUE);
+		case FALSE: return new LiteralBool(nodes, tok.location(), LiteralBool.Value.FALSE);
+		case INTEGER: return new LiteralInt(nodes, tok.location(), tok.intValue());
+		case FLOAT: return new LiteralFloat(nodes, tok.location(), tok.floatValue());
+		default: return new Error(nodes, tok.location(), "Unknown Operation: " + tok);
 		}
 	}
 }
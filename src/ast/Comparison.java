@@ -16,8 +16,8 @@ public class Comparison extends Command implements Expression {
 		LT;
 	}
 
-	public Comparison(int lineNum, int charPos, Expression leftSide, Operation op, Expression rightSide) {
-		super(lineNum, charPos);
+	public Comparison(Nodes nodes, int location, Expression leftSide, Operation op, Expression rightSide) {
+		super(nodes, location);
 		left = leftSide;
 		right = rightSide;
 		this.op = op;
@@ -8,9 +8,9 @@ public class DeclarationList extends Command implements Iterable<Declaration> {
 	
 	private List<Declaration> list;
 	
-	public DeclarationList(int lineNum, int charPos)
+	public DeclarationList(Nodes nodes, int location)
 	{
-		super(lineNum, charPos);
+		super(nodes, location);
 		list = new ArrayList<Declaration>();
 	}
 	
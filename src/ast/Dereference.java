@@ -4,9 +4,9 @@ public class Dereference extends Command implements Expression {
 	
 	private Expression expression;
 	
-	public Dereference(int lineNum, int charPos, Expression expression)
+	public Dereference(Nodes nodes, int location, Expression expression)
 	{
-		super(lineNum, charPos);
+		super(nodes, location);
 		this.expression = expression;
 	}
 	
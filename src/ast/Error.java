@@ -5,16 +5,29 @@ import crux.Symbol;
 public class Error extends Command implements Declaration, Statement, Expression {
 	
 	private String message;
+	private crux.BindingLog bindings;
 
-	public Error(int lineNum, int charPos, String message) {
-		super(lineNum, charPos);
+	public Error(Nodes nodes, int location, String message) {
+		super(nodes, location);
 		this.message = message;
 	}
+
+	// Keeps the bindings the parser saw in what this error replaced, for the Resolver
+	public Error(Nodes nodes, int location, String message, crux.BindingLog bindings) {
+		super(nodes, location);
+		this.message = message;
+		this.bindings = bindings;
+	}
 	
 	public String message()
 	{
 		return message;
 	}
+
+	public crux.BindingLog bindings()
+	{
+		return bindings;
+	}
 	
 	@Override
 	public String toString()
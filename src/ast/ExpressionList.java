@@ -8,9 +8,9 @@ public class ExpressionList extends Command implements Iterable<Expression> {
 	
 	private List<Expression> list;
 	
-	public ExpressionList(int lineNum, int charPos)
+	public ExpressionList(Nodes nodes, int location)
 	{
-		super(lineNum, charPos);
+		super(nodes, location);
 		list = new ArrayList<Expression>();
 	}
 	
@@ -0,0 +1,736 @@
+package ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import crux.Source;
+import crux.Symbol;
+import types.Type;
+
+// A whole tree kept in a few parallel arrays instead of one object per node. The nodes are
+// numbered in preorder, so a node's subtree is the run of nodes after it and a walk over the tree
+// reads the arrays from front to back. Each node has a kind, its parent, the size of its subtree,
+// its location and a payload: the value of a literal, the operation of a comparison, or the index
+// of its symbol, name or message in a side array. Nodes with the same symbol or name share its
+// entry there. A node's first child is the node after it, and its next sibling is the node after
+// its subtree.
+// A Cursor walks the arrays directly. command() drives any CommandVisitor by building the node
+// objects again as they are needed, one top level declaration at a time. A node that is built
+// again takes its index in the tree as its ID, so every copy of it has the same one. Those are
+// not the IDs the nodes had in the parse: the tree's nodes have Nodes of their own, and a
+// TypeChecker only answers for nodes from the tree it checked. Run the checker and the code
+// generator on the same representation.
+// Trees are flattened after the Resolver: a name that was not resolved keeps only its name.
+public final class FlatTree {
+
+	public enum Kind
+	{
+		DECLARATION_LIST, STATEMENT_LIST, EXPRESSION_LIST,
+		ADDRESS_OF, LITERAL_BOOL, LITERAL_FLOAT, LITERAL_INT,
+		VARIABLE_DECLARATION, ARRAY_DECLARATION, FUNCTION_DEFINITION,
+		ADDITION, SUBTRACTION, MULTIPLICATION, DIVISION,
+		LOGICAL_AND, LOGICAL_OR, LOGICAL_NOT,
+		COMPARISON,
+		DEREFERENCE, INDEX, ASSIGNMENT, CALL,
+		IF_ELSE_BRANCH, WHILE_LOOP, RETURN,
+		ERROR;
+	}
+
+	private static final Kind[] KINDS = Kind.values();
+	private static final Comparison.Operation[] OPERATIONS = Comparison.Operation.values();
+	private static final LiteralBool.Value[] BOOLS = LiteralBool.Value.values();
+
+	private static final int NONE = -1;
+
+	private byte[] kinds;
+	private int[] parents;
+	//The number of nodes in each node's subtree, counting the node itself
+	private int[] sizes;
+	private int[] locations;
+	private int[] payloads;
+	private int size;
+	//The locations are offsets into the source of the parse the tree is from
+	private Indices nodes;
+
+	//Symbols, names, messages and function signatures, found through the payloads
+	private Object[] objects;
+	private int objectCount;
+
+	private FlatTree(int capacity)
+	{
+		kinds = new byte[capacity];
+		parents = new int[capacity];
+		sizes = new int[capacity];
+		locations = new int[capacity];
+		payloads = new int[capacity];
+		objects = new Object[Math.max(16, capacity / 4)];
+	}
+
+	// Flattens the tree under root. Lazily parsed function bodies are parsed now.
+	public static FlatTree of(Command root)
+	{
+		FlatTree tree = new FlatTree(256);
+		tree.nodes = tree.new Indices(root.nodes().source());
+		new Flattener(tree).flatten(root);
+		tree.trim();
+		return tree;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public int root()
+	{
+		return 0;
+	}
+
+	public Kind kind(int node)
+	{
+		return KINDS[kinds[node]];
+	}
+
+	// NONE (-1) for the root
+	public int parent(int node)
+	{
+		return parents[node];
+	}
+
+	// NONE (-1) when the node has no children
+	public int firstChild(int node)
+	{
+		return sizes[node] > 1 ? node + 1 : NONE;
+	}
+
+	// NONE (-1) for the last child
+	public int nextSibling(int node)
+	{
+		int parent = parents[node];
+		int sibling = node + sizes[node];
+		return parent != NONE && sibling < parent + sizes[parent] ? sibling : NONE;
+	}
+
+	public int location(int node)
+	{
+		return locations[node];
+	}
+
+	// The first node after the subtree under node
+	public int end(int node)
+	{
+		return node + sizes[node];
+	}
+
+	public int intValue(int node)
+	{
+		return payloads[node];
+	}
+
+	public float floatValue(int node)
+	{
+		return Float.intBitsToFloat(payloads[node]);
+	}
+
+	public boolean boolValue(int node)
+	{
+		return BOOLS[payloads[node]] == LiteralBool.Value.TRUE;
+	}
+
+	public Comparison.Operation operation(int node)
+	{
+		return OPERATIONS[payloads[node]];
+	}
+
+	// The symbol of a reference, declaration, call or function, null if it was never resolved
+	public Symbol symbol(int node)
+	{
+		Object object = objects[payloads[node]];
+		return object instanceof Symbol ? (Symbol) object : null;
+	}
+
+	// The name of a reference or call
+	public String name(int node)
+	{
+		Object object = objects[payloads[node]];
+		return object instanceof Symbol ? ((Symbol) object).name() : (String) object;
+	}
+
+	public String message(int node)
+	{
+		return (String) objects[payloads[node]];
+	}
+
+	@SuppressWarnings("unchecked")
+	public List<Symbol> arguments(int node)
+	{
+		return (List<Symbol>) objects[payloads[node] + 1];
+	}
+
+	public Type returnType(int node)
+	{
+		return (Type) objects[payloads[node] + 2];
+	}
+
+	public Cursor cursor()
+	{
+		return new Cursor();
+	}
+
+	// Walks the tree without building any nodes. It starts on the root.
+	public final class Cursor {
+
+		//The tree's arrays, which don't change once it is built
+		private final byte[] kinds = FlatTree.this.kinds;
+		private final int[] parents = FlatTree.this.parents;
+		private final int[] sizes = FlatTree.this.sizes;
+		private final int size = FlatTree.this.size;
+
+		private int node = 0;
+
+		public int node()
+		{
+			return node;
+		}
+
+		public Kind kind()
+		{
+			return KINDS[kinds[node]];
+		}
+
+		public int location()
+		{
+			return locations[node];
+		}
+
+		// Counted by following the parents up to the root
+		public int depth()
+		{
+			int depth = 0;
+			for (int above = parents[node]; above != NONE; above = parents[above])
+				depth++;
+			return depth;
+		}
+
+		// Moves to the first child, false if there is none
+		public boolean firstChild()
+		{
+			if (sizes[node] == 1)
+				return false;
+			node++;
+			return true;
+		}
+
+		// Moves to the next sibling, false if this is the last child
+		public boolean nextSibling()
+		{
+			int sibling = FlatTree.this.nextSibling(node);
+			if (sibling == NONE)
+				return false;
+			node = sibling;
+			return true;
+		}
+
+		// Moves up a level, false at the root
+		public boolean parent()
+		{
+			int parent = parents[node];
+			if (parent == NONE)
+				return false;
+			node = parent;
+			return true;
+		}
+
+		// Moves to the next node in preorder, false after the last one. That is always the next
+		// index, either this node's first child or the next sibling of it or of a node above it.
+		public boolean next()
+		{
+			if (node + 1 == size)
+				return false;
+			node++;
+			return true;
+		}
+
+		public int intValue()
+		{
+			return FlatTree.this.intValue(node);
+		}
+
+		public float floatValue()
+		{
+			return FlatTree.this.floatValue(node);
+		}
+
+		public boolean boolValue()
+		{
+			return FlatTree.this.boolValue(node);
+		}
+
+		public Comparison.Operation operation()
+		{
+			return FlatTree.this.operation(node);
+		}
+
+		public Symbol symbol()
+		{
+			return FlatTree.this.symbol(node);
+		}
+
+		public String name()
+		{
+			return FlatTree.this.name(node);
+		}
+	}
+
+	// The tree as a Command, for the TypeChecker, CodeGen and the other visitors. A
+	// DeclarationList root hands out its declarations one at a time, so only the declaration
+	// being visited is built as objects.
+	public synchronized Command command()
+	{
+		if (kinds[0] == Kind.DECLARATION_LIST.ordinal())
+			return new Declarations();
+		return node(0);
+	}
+
+	public void accept(CommandVisitor visitor)
+	{
+		command().accept(visitor);
+	}
+
+	private final class Declarations extends DeclarationList {
+
+		Declarations()
+		{
+			super(nodes.at(0), locations[0]);
+		}
+
+		@Override
+		public Iterator<Declaration> iterator()
+		{
+			return new Iterator<Declaration>() {
+				private int child = 1;
+
+				@Override
+				public boolean hasNext()
+				{
+					return child < size;
+				}
+
+				@Override
+				public Declaration next()
+				{
+					Declaration declaration = (Declaration) node(child);
+					child += sizes[child];
+					return declaration;
+				}
+			};
+		}
+
+		@Override
+		public String toString()
+		{
+			return DeclarationList.class.getName() + "(" + lineNumber() + "," + charPosition() + ")";
+		}
+	}
+
+	// What the nodes built again share. The ID a node takes is the index it is built from, so
+	// only one node is built at a time.
+	private final class Indices extends Nodes {
+
+		private int next;
+
+		Indices(Source source)
+		{
+			super(source);
+		}
+
+		Indices at(int node)
+		{
+			next = node;
+			return this;
+		}
+
+		@Override
+		int newId()
+		{
+			return next;
+		}
+
+		@Override
+		public int count()
+		{
+			return size;
+		}
+	}
+
+	// Builds the subtree under node as objects. The children of a node come after it, so
+	// building from the end of the subtree back has every child ready before its parent.
+	public synchronized Command node(int node)
+	{
+		int end = node + sizes[node];
+		Command[] built = new Command[end - node];
+		for (int n = end - 1; n >= node; n--)
+			built[n - node] = build(n, built, node);
+		return built[0];
+	}
+
+	private Command build(int n, Command[] built, int base)
+	{
+		Nodes nodes = this.nodes.at(n);
+		int location = locations[n];
+		int end = n + sizes[n];
+		int first = n + 1;
+		int next = first < end ? first + sizes[first] : end;
+		Command child = first < end ? built[first - base] : null;
+		Command second = next < end ? built[next - base] : null;
+
+		switch (KINDS[kinds[n]]) {
+		case DECLARATION_LIST: {
+			DeclarationList list = new DeclarationList(nodes, location);
+			for (int c = first; c < end; c += sizes[c])
+				list.add((Declaration) built[c - base]);
+			return list;
+		}
+		case STATEMENT_LIST: {
+			StatementList list = new StatementList(nodes, location);
+			for (int c = first; c < end; c += sizes[c])
+				list.add((Statement) built[c - base]);
+			return list;
+		}
+		case EXPRESSION_LIST: {
+			ExpressionList list = new ExpressionList(nodes, location);
+			for (int c = first; c < end; c += sizes[c])
+				list.add((Expression) built[c - base]);
+			return list;
+		}
+		case ADDRESS_OF: {
+			Symbol symbol = symbol(n);
+			return symbol != null ? new AddressOf(nodes, location, symbol) : new AddressOf(nodes, location, name(n), -1);
+		}
+		case LITERAL_BOOL: return new LiteralBool(nodes, location, BOOLS[payloads[n]]);
+		case LITERAL_FLOAT: return new LiteralFloat(nodes, location, floatValue(n));
+		case LITERAL_INT: return new LiteralInt(nodes, location, payloads[n]);
+		case VARIABLE_DECLARATION: return new VariableDeclaration(nodes, location, symbol(n));
+		case ARRAY_DECLARATION: return new ArrayDeclaration(nodes, location, symbol(n));
+		case FUNCTION_DEFINITION:
+			return new FunctionDefinition(nodes, location, symbol(n), arguments(n), returnType(n), (StatementList) child);
+		case ADDITION: return new Addition(nodes, location, (Expression) child, (Expression) second);
+		case SUBTRACTION: return new Subtraction(nodes, location, (Expression) child, (Expression) second);
+		case MULTIPLICATION: return new Multiplication(nodes, location, (Expression) child, (Expression) second);
+		case DIVISION: return new Division(nodes, location, (Expression) child, (Expression) second);
+		case LOGICAL_AND: return new LogicalAnd(nodes, location, (Expression) child, (Expression) second);
+		case LOGICAL_OR: return new LogicalOr(nodes, location, (Expression) child, (Expression) second);
+		case LOGICAL_NOT: return new LogicalNot(nodes, location, (Expression) child);
+		case COMPARISON: return new Comparison(nodes, location, (Expression) child, operation(n), (Expression) second);
+		case DEREFERENCE: return new Dereference(nodes, location, (Expression) child);
+		case INDEX: return new Index(nodes, location, (Expression) child, (Expression) second);
+		case ASSIGNMENT: return new Assignment(nodes, location, (Expression) child, (Expression) second);
+		case CALL: {
+			Symbol symbol = symbol(n);
+			if (symbol != null)
+				return new Call(nodes, location, symbol, (ExpressionList) child);
+			return new Call(nodes, location, name(n), -1, location, (ExpressionList) child);
+		}
+		case IF_ELSE_BRANCH: {
+			Command elseBlock = built[next + sizes[next] - base];
+			return new IfElseBranch(nodes, location, (Expression) child, (StatementList) second, (StatementList) elseBlock);
+		}
+		case WHILE_LOOP: return new WhileLoop(nodes, location, (Expression) child, (StatementList) second);
+		case RETURN: return new Return(nodes, location, (Expression) child);
+		default: return new Error(nodes, location, message(n));
+		}
+	}
+
+	private int add(Kind kind, int parent, int location, int payload)
+	{
+		if (size == kinds.length) {
+			int capacity = 2 * size;
+			kinds = Arrays.copyOf(kinds, capacity);
+			parents = Arrays.copyOf(parents, capacity);
+			sizes = Arrays.copyOf(sizes, capacity);
+			locations = Arrays.copyOf(locations, capacity);
+			payloads = Arrays.copyOf(payloads, capacity);
+		}
+		kinds[size] = (byte) kind.ordinal();
+		parents[size] = parent;
+		sizes[size] = 1;
+		locations[size] = location;
+		payloads[size] = payload;
+		return size++;
+	}
+
+	// The index of the first of the objects
+	private int addObjects(Object... added)
+	{
+		if (objectCount + added.length > objects.length)
+			objects = Arrays.copyOf(objects, Math.max(objectCount + added.length, 2 * objects.length));
+		System.arraycopy(added, 0, objects, objectCount, added.length);
+		objectCount += added.length;
+		return objectCount - added.length;
+	}
+
+	private void trim()
+	{
+		kinds = Arrays.copyOf(kinds, size);
+		parents = Arrays.copyOf(parents, size);
+		sizes = Arrays.copyOf(sizes, size);
+		locations = Arrays.copyOf(locations, size);
+		payloads = Arrays.copyOf(payloads, size);
+		objects = Arrays.copyOf(objects, objectCount);
+	}
+
+	// Numbers the nodes in preorder with a work stack, so deep trees don't use the thread's
+	// stack. Each visit adds the node and pushes its children for after it. The subtree sizes are
+	// added up from the back once every node is in.
+	private static final class Flattener implements CommandVisitor {
+
+		private final FlatTree tree;
+		private final ArrayList<Command> work = new ArrayList<Command>();
+		//The parent of each node on the work stack
+		private int[] parents = new int[64];
+		//Where each symbol, name and message already is in the objects
+		private final HashMap<Object, Integer> objects = new HashMap<Object, Integer>();
+		private int parent;
+		private int node;
+
+		Flattener(FlatTree tree)
+		{
+			this.tree = tree;
+		}
+
+		void flatten(Command root)
+		{
+			push(root, NONE);
+			while (!work.isEmpty()) {
+				int top = work.size() - 1;
+				Command command = work.remove(top);
+				parent = parents[top];
+				command.accept(this);
+			}
+			for (int n = tree.size - 1; n > 0; n--)
+				tree.sizes[tree.parents[n]] += tree.sizes[n];
+		}
+
+		private void push(Command command, int parent)
+		{
+			int top = work.size();
+			if (top == parents.length)
+				parents = Arrays.copyOf(parents, 2 * top);
+			parents[top] = parent;
+			work.add(command);
+		}
+
+		// Adds the node being visited under its parent
+		private void add(Kind kind, Command command, int payload)
+		{
+			node = tree.add(kind, parent, command.location(), payload);
+		}
+
+		// Pushed backwards so they are added in order
+		private void children(Visitable... children)
+		{
+			for (int i = children.length - 1; i >= 0; i--)
+				push((Command) children[i], node);
+		}
+
+		private void items(Iterable<? extends Visitable> children)
+		{
+			ArrayList<Visitable> list = new ArrayList<Visitable>();
+			for (Visitable child : children)
+				list.add(child);
+			children(list.toArray(new Visitable[0]));
+		}
+
+		private int object(Object object)
+		{
+			Integer index = objects.get(object);
+			if (index == null) {
+				index = tree.addObjects(object);
+				objects.put(object, index);
+			}
+			return index;
+		}
+
+		@Override
+		public void visit(ExpressionList node)
+		{
+			add(Kind.EXPRESSION_LIST, node, 0);
+			items(node);
+		}
+
+		@Override
+		public void visit(DeclarationList node)
+		{
+			add(Kind.DECLARATION_LIST, node, 0);
+			items(node);
+		}
+
+		@Override
+		public void visit(StatementList node)
+		{
+			add(Kind.STATEMENT_LIST, node, 0);
+			items(node);
+		}
+
+		@Override
+		public void visit(AddressOf node)
+		{
+			add(Kind.ADDRESS_OF, node, object(node.symbol() != null ? node.symbol() : node.name()));
+		}
+
+		@Override
+		public void visit(LiteralBool node)
+		{
+			add(Kind.LITERAL_BOOL, node, node.value().ordinal());
+		}
+
+		@Override
+		public void visit(LiteralFloat node)
+		{
+			add(Kind.LITERAL_FLOAT, node, Float.floatToRawIntBits(node.value()));
+		}
+
+		@Override
+		public void visit(LiteralInt node)
+		{
+			add(Kind.LITERAL_INT, node, node.value());
+		}
+
+		@Override
+		public void visit(VariableDeclaration node)
+		{
+			add(Kind.VARIABLE_DECLARATION, node, object(node.symbol()));
+		}
+
+		@Override
+		public void visit(ArrayDeclaration node)
+		{
+			add(Kind.ARRAY_DECLARATION, node, object(node.symbol()));
+		}
+
+		@Override
+		public void visit(FunctionDefinition node)
+		{
+			//The signature keeps the argument list the function already has. Calls to the function
+			//share its first entry.
+			int signature = tree.addObjects(node.function(), node.arguments(), node.returnType());
+			objects.putIfAbsent(node.function(), signature);
+			add(Kind.FUNCTION_DEFINITION, node, signature);
+			children(node.body());
+		}
+
+		@Override
+		public void visit(Addition node)
+		{
+			add(Kind.ADDITION, node, 0);
+			children(node.leftSide(), node.rightSide());
+		}
+
+		@Override
+		public void visit(Subtraction node)
+		{
+			add(Kind.SUBTRACTION, node, 0);
+			children(node.leftSide(), node.rightSide());
+		}
+
+		@Override
+		public void visit(Multiplication node)
+		{
+			add(Kind.MULTIPLICATION, node, 0);
+			children(node.leftSide(), node.rightSide());
+		}
+
+		@Override
+		public void visit(Division node)
+		{
+			add(Kind.DIVISION, node, 0);
+			children(node.leftSide(), node.rightSide());
+		}
+
+		@Override
+		public void visit(LogicalAnd node)
+		{
+			add(Kind.LOGICAL_AND, node, 0);
+			children(node.leftSide(), node.rightSide());
+		}
+
+		@Override
+		public void visit(LogicalOr node)
+		{
+			add(Kind.LOGICAL_OR, node, 0);
+			children(node.leftSide(), node.rightSide());
+		}
+
+		@Override
+		public void visit(LogicalNot node)
+		{
+			add(Kind.LOGICAL_NOT, node, 0);
+			children(node.expression());
+		}
+
+		@Override
+		public void visit(Comparison node)
+		{
+			add(Kind.COMPARISON, node, node.operation().ordinal());
+			children(node.leftSide(), node.rightSide());
+		}
+
+		@Override
+		public void visit(Dereference node)
+		{
+			add(Kind.DEREFERENCE, node, 0);
+			children(node.expression());
+		}
+
+		@Override
+		public void visit(Index node)
+		{
+			add(Kind.INDEX, node, 0);
+			children(node.base(), node.amount());
+		}
+
+		@Override
+		public void visit(Assignment node)
+		{
+			add(Kind.ASSIGNMENT, node, 0);
+			children(node.destination(), node.source());
+		}
+
+		@Override
+		public void visit(Call node)
+		{
+			add(Kind.CALL, node, object(node.function() != null ? node.function() : node.functionName()));
+			children(node.arguments());
+		}
+
+		@Override
+		public void visit(IfElseBranch node)
+		{
+			add(Kind.IF_ELSE_BRANCH, node, 0);
+			children(node.condition(), node.thenBlock(), node.elseBlock());
+		}
+
+		@Override
+		public void visit(WhileLoop node)
+		{
+			add(Kind.WHILE_LOOP, node, 0);
+			children(node.condition(), node.body());
+		}
+
+		@Override
+		public void visit(Return node)
+		{
+			add(Kind.RETURN, node, 0);
+			children(node.argument());
+		}
+
+		@Override
+		public void visit(Error node)
+		{
+			add(Kind.ERROR, node, object(node.message()));
+		}
+	}
+}
@@ -1,30 +1,75 @@
 package ast;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 import crux.Symbol;
+import types.Type;
 
 public class FunctionDefinition extends Command implements Declaration {
 
 	private Symbol func;
-	private StatementList body;
+	private volatile StatementList body;
+	private Supplier<StatementList> lazyBody;
 	private List<Symbol> args;
+	private Type returnType;
 	
-	public FunctionDefinition(int lineNum, int charPos, Symbol func, List<Symbol> args, StatementList body)
+	public FunctionDefinition(Nodes nodes, int location, Symbol func, List<Symbol> args, Type returnType, StatementList body)
 	{
-		super(lineNum, charPos);
+		super(nodes, location);
 		this.func = func;
 		this.args = args;
+		this.returnType = returnType;
 		this.body = body;
 	}
+
+	// The body is only parsed the first time body() is called
+	public FunctionDefinition(Nodes nodes, int location, Symbol func, List<Symbol> args, Type returnType, Supplier<StatementList> lazyBody)
+	{
+		super(nodes, location);
+		this.func = func;
+		this.args = args;
+		this.returnType = returnType;
+		this.lazyBody = lazyBody;
+	}
 	
 	public Symbol function()
 	{
 		return func;
 	}
+
+	// The Resolver sets the function's type, and puts an error symbol here when the name was
+	// already declared
+	public void setFunction(Symbol func)
+	{
+		this.func = func;
+	}
+
+	public Type returnType()
+	{
+		return returnType;
+	}
+
+	// Whether body() can be called without parsing anything
+	public boolean hasParsedBody()
+	{
+		return body != null;
+	}
 	
 	public StatementList body()
 	{
+		StatementList statements = body;
+		if (statements == null)
+			statements = parseBody();
+		return statements;
+	}
+
+	private synchronized StatementList parseBody()
+	{
+		if (body == null) {
+			body = lazyBody.get();
+			lazyBody = null;
+		}
 		return body;
 	}
 	
@@ -33,6 +78,11 @@ public class FunctionDefinition extends Command implements Declaration {
 		return args;
 	}
 
+	public void setArgument(int position, Symbol arg)
+	{
+		args.set(position, arg);
+	}
+
 	@Override
 	public Symbol symbol() {
 		return func;
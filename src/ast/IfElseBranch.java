@@ -6,8 +6,8 @@ public class IfElseBranch extends Command implements Statement {
 	private StatementList thenBlock;
 	private StatementList elseBlock;
 
-	public IfElseBranch(int lineNum, int charPos, Expression cond, StatementList thenBlock, StatementList elseBlock) {
-		super(lineNum, charPos);
+	public IfElseBranch(Nodes nodes, int location, Expression cond, StatementList thenBlock, StatementList elseBlock) {
+		super(nodes, location);
 		this.cond = cond;
 		this.thenBlock = thenBlock;
 		this.elseBlock = elseBlock;
@@ -5,8 +5,8 @@ public class Index extends Command implements Expression {
 	private Expression base;
 	private Expression amount;
 	
-	public Index(int lineNum, int charPos, Expression base, Expression amount) {
-		super(lineNum, charPos);
+	public Index(Nodes nodes, int location, Expression base, Expression amount) {
+		super(nodes, location);
 		this.base = base;
 		this.amount = amount;
 	}
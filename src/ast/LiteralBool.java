@@ -10,8 +10,8 @@ public class LiteralBool extends Command implements Expression {
 
 	private Value value;
 	
-	public LiteralBool(int lineNum, int charPos, Value value) {
-		super(lineNum, charPos);
+	public LiteralBool(Nodes nodes, int location, Value value) {
+		super(nodes, location);
 		this.value = value;
 	}
 	
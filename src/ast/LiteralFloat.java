@@ -4,8 +4,8 @@ public class LiteralFloat extends Command implements Expression {
 	
 	private Float value;
 
-	public LiteralFloat(int lineNum, int charPos, Float value) {
-		super(lineNum, charPos);
+	public LiteralFloat(Nodes nodes, int location, Float value) {
+		super(nodes, location);
 		this.value = value;
 	}
 	
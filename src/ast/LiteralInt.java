@@ -4,8 +4,8 @@ public class LiteralInt extends Command implements Expression {
 	
 	private Integer value;
 
-	public LiteralInt(int lineNum, int charPos, Integer value) {
-		super(lineNum, charPos);
+	public LiteralInt(Nodes nodes, int location, Integer value) {
+		super(nodes, location);
 		this.value = value;
 	}
 	
@@ -3,8 +3,8 @@ package ast;
 public class LogicalNot extends Command implements Expression {
 	private Expression expr;
 	
-	public LogicalNot(int lineNum, int charPos, Expression expr) {
-		super(lineNum, charPos);
+	public LogicalNot(Nodes nodes, int location, Expression expr) {
+		super(nodes, location);
 		this.expr = expr;
 	}
 	
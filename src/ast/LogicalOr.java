@@ -4,8 +4,8 @@ public class LogicalOr extends Command implements Expression {
 	private Expression left;
 	private Expression right;
 	
-	public LogicalOr(int lineNum, int charPos, Expression leftSide, Expression rightSide) {
-		super(lineNum, charPos);
+	public LogicalOr(Nodes nodes, int location, Expression leftSide, Expression rightSide) {
+		super(nodes, location);
 		left = leftSide;
 		right = rightSide;
 	}
@@ -0,0 +1,38 @@
+package ast;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import crux.Source;
+
+// What the nodes built by one parse have in common. Their locations are offsets into the same
+// source, so a node finds its line and char position through this and nothing outside the
+// compilation has to remember the source. Their IDs are counted from 0 here, so analyses can
+// keep what they find about the nodes in arrays as big as the parse. Parsing the same source
+// again starts over with new Nodes.
+public class Nodes {
+	
+	private final Source source;
+	//Bodies parsed in parallel take IDs at the same time
+	private final AtomicInteger ids = new AtomicInteger();
+	
+	public Nodes(Source source)
+	{
+		this.source = source;
+	}
+	
+	public Source source()
+	{
+		return source;
+	}
+	
+	int newId()
+	{
+		return ids.getAndIncrement();
+	}
+	
+	// How many IDs have been handed out, all of them are below this
+	public int count()
+	{
+		return ids.get();
+	}
+}
@@ -4,6 +4,18 @@ public class PrettyPrinter implements CommandVisitor {
 	
 	private int depth = 0;
 	private StringBuffer sb = new StringBuffer();
+	private final Traversal traversal;
+	private final Runnable outdent = () -> depth--;
+
+	public PrettyPrinter()
+	{
+		this(false);
+	}
+
+	public PrettyPrinter(boolean explicitStack)
+	{
+		traversal = new Traversal(this, explicitStack);
+	}
 	
 	private void println(Object obj)
 	{
@@ -25,8 +37,8 @@ public class PrettyPrinter implements CommandVisitor {
 		println(node);
 		depth++;
 		for (Expression e : node)
-			e.accept(this);
-		depth--;
+			traversal.walk(e);
+		traversal.then(outdent);
 	}
 
 	@Override
@@ -34,8 +46,8 @@ public class PrettyPrinter implements CommandVisitor {
 		println(node);
 		depth++;
 		for (Declaration d : node)
-			d.accept(this);
-		depth--;
+			traversal.walk(d);
+		traversal.then(outdent);
 	}
 
 	@Override
@@ -43,8 +55,8 @@ public class PrettyPrinter implements CommandVisitor {
 		println(node);
 		depth++;
 		for (Statement s : node)
-			s.accept(this);
-		depth--;
+			traversal.walk(s);
+		traversal.then(outdent);
 	}
 
 	@Override
@@ -81,79 +93,79 @@ public class PrettyPrinter implements CommandVisitor {
 	public void visit(FunctionDefinition node) {
 		println(node);
 		depth++;
-		node.body().accept(this);
-		depth--;
+		traversal.walk(node.body());
+		traversal.then(outdent);
 	}
 
 	@Override
 	public void visit(Comparison node) {
 	 	println(node);
 		depth++;
-		node.leftSide().accept(this);
-		node.rightSide().accept(this);
-		depth--;
+		traversal.walk(node.leftSide());
+		traversal.walk(node.rightSide());
+		traversal.then(outdent);
 	}
 
 	@Override
 	public void visit(Addition node) {
 		println(node);
 		depth++;
-		node.leftSide().accept(this);
-		node.rightSide().accept(this);
-		depth--;
+		traversal.walk(node.leftSide());
+		traversal.walk(node.rightSide());
+		traversal.then(outdent);
 	}
 
 	@Override
 	public void visit(Subtraction node) {
 		println(node);
 		depth++;
-		node.leftSide().accept(this);
-		node.rightSide().accept(this);
-		depth--;
+		traversal.walk(node.leftSide());
+		traversal.walk(node.rightSide());
+		traversal.then(outdent);
 	}
 
 	@Override
 	public void visit(Multiplication node) {
 		println(node);
 		depth++;
-		node.leftSide().accept(this);
-		node.rightSide().accept(this);
-		depth--;
+		traversal.walk(node.leftSide());
+		traversal.walk(node.rightSide());
+		traversal.then(outdent);
 	}
 	
 	@Override
 	public void visit(Division node) {
 		println(node);
 		depth++;
-		node.leftSide().accept(this);
-		node.rightSide().accept(this);
-		depth--;
+		traversal.walk(node.leftSide());
+		traversal.walk(node.rightSide());
+		traversal.then(outdent);
 	}
 
 	@Override
 	public void visit(LogicalAnd node) {
 		println(node);
 		depth++;
-		node.leftSide().accept(this);
-		node.rightSide().accept(this);
-		depth--;
+		traversal.walk(node.leftSide());
+		traversal.walk(node.rightSide());
+		traversal.then(outdent);
 	}
 
 	@Override
 	public void visit(LogicalOr node) {
 		println(node);
 		depth++;
-		node.leftSide().accept(this);
-		node.rightSide().accept(this);
-		depth--;
+		traversal.walk(node.leftSide());
+		traversal.walk(node.rightSide());
+		traversal.then(outdent);
 	}
 
 	@Override
 	public void visit(LogicalNot node) {
 		println(node);
 		depth++;
-		node.expression().accept(this);
-		depth--;
+		traversal.walk(node.expression());
+		traversal.then(outdent);
 	}
 	
 	@Override
@@ -161,61 +173,61 @@ public class PrettyPrinter implements CommandVisitor {
 	{
 		println(node);
 		depth++;
-		node.expression().accept(this);
-		depth--;
+		traversal.walk(node.expression());
+		traversal.then(outdent);
 	}
 
 	@Override
 	public void visit(Index node) {
 		println(node);
 		depth++;
-		node.base().accept(this);
-		node.amount().accept(this);
-		depth--;
+		traversal.walk(node.base());
+		traversal.walk(node.amount());
+		traversal.then(outdent);
 	}
 
 	@Override
 	public void visit(Assignment node) {
 		println(node);
 		depth++;
-		node.destination().accept(this);
-		node.source().accept(this);
-		depth--;
+		traversal.walk(node.destination());
+		traversal.walk(node.source());
+		traversal.then(outdent);
 	}
 
 	@Override
 	public void visit(Call node) {
 		println(node);
 		depth++;
-		node.arguments().accept(this);
-		depth--;
+		traversal.walk(node.arguments());
+		traversal.then(outdent);
 	}
 
 	@Override
 	public void visit(IfElseBranch node) {
 		println(node);
 		depth++;
-		node.condition().accept(this);
-		node.thenBlock().accept(this);
-		node.elseBlock().accept(this);
-		depth--;
+		traversal.walk(node.condition());
+		traversal.walk(node.thenBlock());
+		traversal.walk(node.elseBlock());
+		traversal.then(outdent);
 	}
 
 	@Override
 	public void visit(WhileLoop node) {
 		println(node);
 		depth++;
-		node.condition().accept(this);
-		node.body().accept(this);
-		depth--;
+		traversal.walk(node.condition());
+		traversal.walk(node.body());
+		traversal.then(outdent);
 	}
 
 	@Override
 	public void visit(Return node) {
 		println(node);
 		depth++;
-		node.argument().accept(this);
-		depth--;
+		traversal.walk(node.argument());
+		traversal.then(outdent);
 	}
 
 	@Override
@@ -4,8 +4,8 @@ public class Return extends Command implements Statement {
 	
 	private Expression arg;
 
-	public Return(int lineNum, int charPos, Expression arg) {
-		super(lineNum, charPos);
+	public Return(Nodes nodes, int location, Expression arg) {
+		super(nodes, location);
 		this.arg = arg;
 	}
 	
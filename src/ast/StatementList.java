@@ -8,9 +8,9 @@ public class StatementList extends Command implements Iterable<Statement> {
 	
 	private List<Statement> list;
 	
-	public StatementList(int lineNum, int charPos)
+	public StatementList(Nodes nodes, int location)
 	{
-		super(lineNum, charPos);
+		super(nodes, location);
 		list = new ArrayList<Statement>();
 	}
 	
@@ -4,8 +4,8 @@ public class Subtraction extends Command implements Expression {
 	private Expression left;
 	private Expression right;
 	
-	public Subtraction(int lineNum, int charPos, Expression leftSide, Expression rightSide) {
-		super(lineNum, charPos);
+	public Subtraction(Nodes nodes, int location, Expression leftSide, Expression rightSide) {
+		super(nodes, location);
 		left = leftSide;
 		right = rightSide;
 	}
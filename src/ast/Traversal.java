@@ -0,0 +1,74 @@
+package ast;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+// Walks a tree for a CommandVisitor. The visitor hands each child to walk() and anything it
+// has to do after a child to then(), in the order a recursive visit would do them.
+// Recursive: walk() visits the child and then() runs the action right away, a plain visit.
+// Explicit stack: while a node is visited its children and actions are only collected, then they
+// are pushed on a work stack on the heap. The Java stack never holds more than one node, so the
+// depth of the tree doesn't depend on the thread's stack size.
+public class Traversal {
+
+	private final CommandVisitor visitor;
+	private final boolean explicitStack;
+
+	private final ArrayList<Object> pending = new ArrayList<Object>();
+	private final ArrayDeque<Object> work = new ArrayDeque<Object>();
+	private boolean running = false;
+
+	public Traversal(CommandVisitor visitor, boolean explicitStack)
+	{
+		this.visitor = visitor;
+		this.explicitStack = explicitStack;
+	}
+
+	public boolean explicitStack()
+	{
+		return explicitStack;
+	}
+
+	public void walk(Visitable node)
+	{
+		if (!explicitStack)
+			node.accept(visitor);
+		else if (running)
+			pending.add(node);
+		else
+			run(node);
+	}
+
+	//Outside of a run (a visit that was started with accept()) the action runs right away
+	public void then(Runnable action)
+	{
+		if (explicitStack && running)
+			pending.add(action);
+		else
+			action.run();
+	}
+
+	private void run(Visitable root)
+	{
+		running = true;
+		try {
+			work.push(root);
+			while (!work.isEmpty()) {
+				Object item = work.pop();
+				if (item instanceof Visitable)
+					((Visitable) item).accept(visitor);
+				else
+					((Runnable) item).run();
+
+				//Pushed backwards so they come off the stack in the order they were given
+				for (int i = pending.size() - 1; i >= 0; i--)
+					work.push(pending.get(i));
+				pending.clear();
+			}
+		} finally {
+			running = false;
+			work.clear();
+			pending.clear();
+		}
+	}
+}
@@ -6,8 +6,8 @@ public class VariableDeclaration extends Command implements Declaration, Stateme
 
 	private Symbol sym;
 	
-	public VariableDeclaration(int lineNum, int charPos, Symbol sym) {
-		super(lineNum, charPos);
+	public VariableDeclaration(Nodes nodes, int location, Symbol sym) {
+		super(nodes, location);
 		this.sym = sym;
 	}
 	
@@ -15,6 +15,11 @@ public class VariableDeclaration extends Command implements Declaration, Stateme
 	public Symbol symbol() {
 		return sym;
 	}
+
+	// The Resolver puts an error symbol here when the name was already declared
+	public void setSymbol(Symbol symbol) {
+		this.sym = symbol;
+	}
 	
 	@Override
 	public String toString() {
@@ -5,8 +5,8 @@ public class WhileLoop extends Command implements Statement {
 	private Expression cond;
 	private StatementList body;
 
-	public WhileLoop(int lineNum, int charPos, Expression cond, StatementList body) {
-		super(lineNum, charPos);
+	public WhileLoop(Nodes nodes, int location, Expression cond, StatementList body) {
+		super(nodes, location);
 		this.cond = cond;
 		this.body = body;
 	}
@@ -0,0 +1,104 @@
+package crux;
+
+import java.util.Arrays;
+import java.util.List;
+
+import types.Type;
+
+// The name bindings the parser came across, in the order it came across them: scopes opened and
+// closed, symbols declared and names used. The Resolver gets them from the tree, the log is for
+// the parts of the program that never made it into the tree because of a syntax error. An
+// ast.Error keeps the bindings of the statement or declaration it replaced so the Resolver can
+// still report on them the same way.
+public final class BindingLog {
+
+    static final byte ENTER = 0;
+    static final byte EXIT = 1;
+    //A Symbol
+    static final byte DECLARE = 2;
+    //A name and its location
+    static final byte REFERENCE = 3;
+    //A function's Symbol, declared before its type is known
+    static final byte FUNCTION = 4;
+    //A function's Symbol, parameters and return type, once its header is parsed
+    static final byte SIGNATURE = 5;
+    //A whole ast.Command, for a declaration that was parsed before the error
+    static final byte VISIT = 6;
+
+    private byte[] kinds = new byte[32];
+    private Object[] values = new Object[32];
+    private int[] locations = new int[32];
+    private int size = 0;
+
+    private void add(byte kind, Object value, int location) {
+        if (size == kinds.length) {
+            kinds = Arrays.copyOf(kinds, 2 * size);
+            values = Arrays.copyOf(values, 2 * size);
+            locations = Arrays.copyOf(locations, 2 * size);
+        }
+        kinds[size] = kind;
+        values[size] = value;
+        locations[size] = location;
+        size++;
+    }
+
+    void enterScope() {
+        add(ENTER, null, -1);
+    }
+
+    void exitScope() {
+        add(EXIT, null, -1);
+    }
+
+    void declare(Symbol symbol) {
+        add(DECLARE, symbol, -1);
+    }
+
+    void reference(String name, int location) {
+        add(REFERENCE, name, location);
+    }
+
+    void function(Symbol function) {
+        add(FUNCTION, function, -1);
+    }
+
+    void signature(Symbol function, List<Symbol> parameters, Type returnType) {
+        add(SIGNATURE, new Object[]{function, parameters, returnType}, -1);
+    }
+
+    void visit(ast.Command node) {
+        add(VISIT, node, -1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    byte kind(int binding) {
+        return kinds[binding];
+    }
+
+    Object value(int binding) {
+        return values[binding];
+    }
+
+    int location(int binding) {
+        return locations[binding];
+    }
+
+    // The bindings from index from on, as a log of their own
+    BindingLog since(int from) {
+        BindingLog log = new BindingLog();
+        log.kinds = Arrays.copyOfRange(kinds, from, Math.max(size, from + 1));
+        log.values = Arrays.copyOfRange(values, from, Math.max(size, from + 1));
+        log.locations = Arrays.copyOfRange(locations, from, Math.max(size, from + 1));
+        log.size = size - from;
+        return log;
+    }
+
+    // Forgets the bindings from index size on
+    void truncate(int size) {
+        Arrays.fill(values, size, this.size, null);
+        this.size = size;
+    }
+}
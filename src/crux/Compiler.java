@@ -1,6 +1,5 @@
 package crux;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintStream;
 
@@ -15,14 +14,39 @@ public class Compiler {
 
         Scanner s = null;
         try {
-            s = new Scanner(new FileReader(sourceFilename));
+            s = Scanner.open(sourceFilename, Scanner.Input.BUFFERED);
         } catch (IOException e) {
             e.printStackTrace();
             System.err.println("Error accessing the source file: \"" + sourceFilename + "\"");
             System.exit(-2);
         }
 
-        Parser p = new Parser(s);
+        //-Dcrux.pipeline=true lexes on a second thread while parsing
+        //-Dcrux.parallelBodies=true parses the function bodies on all the cores, which needs the
+        //tokens scanned beforehand
+        boolean parallelBodies = Boolean.getBoolean("crux.parallelBodies");
+        //One interner for the compilation, that parallel bodies can intern names into at once
+        s.source().setInterner(parallelBodies ? new ConcurrentNameTable() : new NameTable());
+        Parser p;
+        if (parallelBodies)
+            p = new Parser(TokenBuffer.scan(s.source()));
+        else if (Boolean.getBoolean("crux.pipeline"))
+            p = new Parser(new TokenPipeline(s));
+        else
+            p = new Parser(s);
+        if (parallelBodies)
+            p.setParallelBodies(java.util.concurrent.ForkJoinPool.commonPool());
+
+        //-Dcrux.explicitStack=true keeps deep nesting off the thread's stack in every phase
+        boolean explicitStack = Boolean.getBoolean("crux.explicitStack");
+        p.setExplicitStack(explicitStack);
+
+        //-Dcrux.maxErrors=N reports up to N syntax errors instead of stopping at the first one
+        p.setMaxErrors(Integer.getInteger("crux.maxErrors", 1));
+
+        //-Dcrux.jfr=true makes a JFR event for every grammar rule, for profiling the parser
+        if (Boolean.getBoolean("crux.jfr"))
+            p.setParseListener(new JfrParseListener());
         ast.Command syntaxTree = p.parse();
         if (p.hasError()) {
             System.out.println("Error parsing file " + sourceFilename);
@@ -30,7 +54,7 @@ public class Compiler {
             System.exit(-3);
         }
 
-        types.TypeChecker tc = new types.TypeChecker();
+        types.TypeChecker tc = new types.TypeChecker(explicitStack);
         tc.check(syntaxTree);
         if (tc.hasError()) {
             System.out.println("Error type-checking file " + sourceFilename);
@@ -38,7 +62,7 @@ public class Compiler {
             System.exit(-4);
         }
 
-        mips.CodeGen cg = new mips.CodeGen(tc);
+        mips.CodeGen cg = new mips.CodeGen(tc, explicitStack);
         cg.generate(syntaxTree);
         if (cg.hasError()) {
             System.out.println("Error generating code for file " + sourceFilename);
@@ -0,0 +1,112 @@
+package crux;
+
+import java.util.Arrays;
+
+// An Interner any number of threads can use at once, for compilations that parse several
+// sources or function bodies in parallel. Finding a name that already has an ID takes no lock:
+// entries are only added under the lock and never change afterwards, and a grown table is only
+// published once it is filled. A thread that misses takes the lock and looks again.
+public final class ConcurrentNameTable implements Interner {
+
+    private static final class Entry {
+        final String name;
+        final int hash;
+        final int id;
+
+        Entry(String name, int hash, int id) {
+            this.name = name;
+            this.hash = hash;
+            this.id = id;
+        }
+    }
+
+    private volatile Entry[] table = new Entry[256];
+    private volatile String[] names = new String[128];
+    //Only changed with the lock held
+    private volatile int size = 0;
+
+    // The ID of the name, given as a String or as [start, end) of source, or -1 - the empty
+    // slot it would go in
+    private static int probe(Entry[] table, int hash, String name, Source source, int start, int end) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        Entry entry;
+        while ((entry = table[slot]) != null) {
+            if (entry.hash == hash && (name != null ? entry.name.equals(name) : Interner.regionMatches(entry.name, source, start, end)))
+                return entry.id;
+            slot = (slot + 1) & mask;
+        }
+        return -1 - slot;
+    }
+
+    @Override
+    public int intern(String name) {
+        int hash = name.hashCode();
+        int id = probe(table, hash, name, null, 0, 0);
+        return id >= 0 ? id : add(hash, name, null, 0, 0);
+    }
+
+    @Override
+    public int intern(Source source, int start, int end) {
+        int hash = Interner.hash(source, start, end);
+        int id = probe(table, hash, null, source, start, end);
+        return id >= 0 ? id : add(hash, null, source, start, end);
+    }
+
+    private synchronized int add(int hash, String name, Source source, int start, int end) {
+        //Another thread may have added it since the lock free look
+        int id = probe(table, hash, name, source, start, end);
+        if (id >= 0)
+            return id;
+        if (name == null)
+            name = source.substring(start, end);
+
+        id = size;
+        String[] names = this.names;
+        if (id == names.length) {
+            names = Arrays.copyOf(names, 2 * id);
+            this.names = names;
+        }
+        names[id] = name;
+
+        Entry[] table = this.table;
+        if (2 * (id + 1) > table.length) {
+            table = grown(table);
+            this.table = table;
+        }
+        int slot = -1 - probe(table, hash, name, null, 0, 0);
+        table[slot] = new Entry(name, hash, id);
+        size = id + 1;
+        return id;
+    }
+
+    private static Entry[] grown(Entry[] table) {
+        Entry[] grown = new Entry[2 * table.length];
+        int mask = grown.length - 1;
+        for (Entry entry : table) {
+            if (entry == null)
+                continue;
+            int slot = entry.hash & mask;
+            while (grown[slot] != null)
+                slot = (slot + 1) & mask;
+            grown[slot] = entry;
+        }
+        return grown;
+    }
+
+    @Override
+    public String name(int id) {
+        String[] names = this.names;
+        String name = id < names.length ? names[id] : null;
+        if (name != null)
+            return name;
+        synchronized (this) {
+            return this.names[id];
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,115 @@
+package crux;
+
+// An error kept as what it is about, not as text. The text is only put together when the report
+// is asked for, so reporting an error costs the same however big the program is: a resolve error
+// keeps the Scopes it was looked up in instead of printing every symbol in them.
+public final class Diagnostic {
+
+    public enum Kind {
+        //A token none of a rule's alternatives start with: the NonTerminal and the Token.Kind found
+        EXPECTED_RULE,
+        //Some other token than the one expected: the Token.Kind expected and the one found
+        EXPECTED_TOKEN,
+        //A name that was never declared: the name
+        UNRESOLVED_SYMBOL,
+        //A name declared twice in the same scope: the name
+        REDECLARED_SYMBOL,
+        //The message of an ErrorType
+        TYPE_ERROR,
+        //A node the code generator can't compile: the node
+        CODEGEN_ERROR
+    }
+
+    private final Kind kind;
+    //The location is an offset into source
+    private final Source source;
+    private final int location;
+    private final Object[] args;
+    //The scopes a symbol error happened in
+    private final FlatSymbolTable.Scopes scopes;
+
+    private Diagnostic(Kind kind, Source source, int location, FlatSymbolTable.Scopes scopes, Object... args) {
+        this.kind = kind;
+        this.source = source;
+        this.location = location;
+        this.scopes = scopes;
+        this.args = args;
+    }
+
+    public static Diagnostic expectedRule(Source source, int location, NonTerminal rule, Token.Kind found) {
+        return new Diagnostic(Kind.EXPECTED_RULE, source, location, null, rule, found);
+    }
+
+    public static Diagnostic expectedToken(Source source, int location, Token.Kind expected, Token.Kind found) {
+        return new Diagnostic(Kind.EXPECTED_TOKEN, source, location, null, expected, found);
+    }
+
+    public static Diagnostic unresolvedSymbol(Source source, int location, String name, FlatSymbolTable.Scopes scopes) {
+        return new Diagnostic(Kind.UNRESOLVED_SYMBOL, source, location, scopes, name);
+    }
+
+    public static Diagnostic redeclaredSymbol(Source source, int location, String name, FlatSymbolTable.Scopes scopes) {
+        return new Diagnostic(Kind.REDECLARED_SYMBOL, source, location, scopes, name);
+    }
+
+    public static Diagnostic typeError(Source source, int location, String message) {
+        return new Diagnostic(Kind.TYPE_ERROR, source, location, null, message);
+    }
+
+    public static Diagnostic codeGenError(ast.Command node) {
+        return new Diagnostic(Kind.CODEGEN_ERROR, node.nodes().source(), node.location(), null, node);
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    public int location() {
+        return location;
+    }
+
+    public Object arg(int i) {
+        return args[i];
+    }
+
+    public FlatSymbolTable.Scopes scopes() {
+        return scopes;
+    }
+
+    private String at() {
+        return "(" + source.lineNumber(location) + "," + source.charPosition(location) + ")";
+    }
+
+    // The first line of the report
+    public String message() {
+        switch (kind) {
+            case EXPECTED_RULE:
+                return "SyntaxError" + at() + "[Expected a token from " + ((NonTerminal) args[0]).name() + " but got " + args[1] + ".]";
+            case EXPECTED_TOKEN:
+                return "SyntaxError" + at() + "[Expected " + args[0] + " but got " + args[1] + ".]";
+            case UNRESOLVED_SYMBOL:
+                return "ResolveSymbolError" + at() + "[Could not find " + args[0] + ".]";
+            case REDECLARED_SYMBOL:
+                return "DeclareSymbolError" + at() + "[" + args[0] + " already exists.]";
+            case TYPE_ERROR:
+                return "TypeError" + at() + "[" + args[0] + "]";
+            case CODEGEN_ERROR:
+                return "CodeGen cannot compile a " + args[0];
+            default:
+                throw new AssertionError(kind);
+        }
+    }
+
+    // The error as it is in the report
+    public String toString() {
+        switch (kind) {
+            case UNRESOLVED_SYMBOL:
+            case REDECLARED_SYMBOL:
+                return message() + "\n" + scopes + "\n";
+            case CODEGEN_ERROR:
+                return message();
+            default:
+                return message() + "\n";
+        }
+    }
+}
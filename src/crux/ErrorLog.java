@@ -0,0 +1,103 @@
+package crux;
+
+import java.util.Arrays;
+
+// The Diagnostics of a pass in the order they were reported, printed only when the report is
+// asked for. Passes that ran apart (the parser and the resolver, or one function body and
+// another) report in source order, so their logs are put back together by merging on the
+// locations.
+public final class ErrorLog {
+
+    private Diagnostic[] diagnostics = new Diagnostic[8];
+    //For a syntax error the number of rule events the parse had recorded, -1 for any other error
+    private int[] traceSizes = new int[8];
+    private int size = 0;
+
+    public void add(Diagnostic diagnostic) {
+        add(diagnostic, -1);
+    }
+
+    void add(Diagnostic diagnostic, int traceSize) {
+        if (size == diagnostics.length) {
+            diagnostics = Arrays.copyOf(diagnostics, 2 * size);
+            traceSizes = Arrays.copyOf(traceSizes, 2 * size);
+        }
+        diagnostics[size] = diagnostic;
+        traceSizes[size] = traceSize;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Diagnostic get(int error) {
+        return diagnostics[error];
+    }
+
+    int location(int error) {
+        return diagnostics[error].location();
+    }
+
+    boolean isSyntaxError(int error) {
+        return traceSizes[error] >= 0;
+    }
+
+    int traceSize(int error) {
+        return traceSizes[error];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Copies the errors [from, to) of another log to the end of this one
+    void append(ErrorLog other, int from, int to) {
+        for (int e = from; e < to; e++)
+            add(other.diagnostics[e], other.traceSizes[e]);
+    }
+
+    void append(ErrorLog other) {
+        append(other, 0, other.size);
+    }
+
+    // The errors of a log in location order that are before location
+    ErrorLog before(int location) {
+        int count = 0;
+        while (count < size && location(count) < location)
+            count++;
+        if (count == size)
+            return this;
+
+        ErrorLog log = new ErrorLog();
+        log.append(this, 0, count);
+        return log;
+    }
+
+    // Both logs in location order, the errors of a first where both have the same location
+    static ErrorLog merge(ErrorLog a, ErrorLog b) {
+        if (b.isEmpty())
+            return a;
+        if (a.isEmpty())
+            return b;
+
+        ErrorLog merged = new ErrorLog();
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size) {
+            if (j == b.size || i < a.size && a.location(i) <= b.location(j))
+                merged.append(a, i, ++i);
+            else
+                merged.append(b, j, ++j);
+        }
+        return merged;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int e = 0; e < size; e++)
+            sb.append(diagnostics[e].toString());
+        return sb.toString();
+    }
+}
@@ -0,0 +1,19 @@
+package crux;
+
+class ErrorSymbol extends Symbol {
+    //The symbol that could not be declared, if it was a declaration
+    private Symbol declared;
+
+    public ErrorSymbol(String message) {
+        super(message);
+    }
+
+    public ErrorSymbol(String message, Symbol declared) {
+        super(message);
+        this.declared = declared;
+    }
+
+    public Symbol declared() {
+        return declared;
+    }
+}
@@ -0,0 +1,242 @@
+package crux;
+
+import types.Type;
+
+import java.util.Arrays;
+
+// The same scopes as a chain of SymbolTables, kept in one table. Every name's ID from the
+// Interner indexes its innermost binding, and each binding points at the one it shadows. The
+// bindings are a stack in declaration order, so exiting a scope pops its bindings and points
+// their names back at what they shadowed. A lookup is one array access however deep the scopes
+// go, and entering a scope is just remembering where its bindings start.
+public class FlatSymbolTable {
+
+    // A symbol in a scope. The bindings are linked from the innermost one out, and the links are
+    // never changed once made, so Scopes can keep the bindings of a moment without copying them.
+    private static final class Binding {
+        final Symbol symbol;
+        final Binding outer;
+        //The binding of the same name this one shadows
+        final Binding shadowed;
+        final int index;
+        final int id;
+
+        Binding(Symbol symbol, Binding outer, Binding shadowed, int id) {
+            this.symbol = symbol;
+            this.outer = outer;
+            this.shadowed = shadowed;
+            this.index = outer == null ? 0 : outer.index + 1;
+            this.id = id;
+        }
+    }
+
+    //The innermost binding
+    private Binding top;
+
+    //The innermost binding outside of each open scope
+    private Binding[] scopes = new Binding[8];
+    private int scope = 0;
+
+    //The innermost binding of each name ID
+    private final Interner names;
+    private Binding[] innermost = new Binding[64];
+
+    //A function is in the table before its type is known, while its parameters are declared
+    private Symbol untyped;
+
+    //A table for a body that is resolved later sees the global scope of another table as it was
+    //when the table was made, its own first scope is at depth 1. The other table must not be
+    //changed while this one is in use.
+    private final FlatSymbolTable globals;
+    private final Binding globalsTop;
+    private final int baseDepth;
+
+    public FlatSymbolTable() {
+        this(new NameTable());
+    }
+
+    // The IDs of the symbols inserted have to be from names, a symbol without one gets one
+    public FlatSymbolTable(Interner names) {
+        this(names, null, null);
+    }
+
+    private FlatSymbolTable(Interner names, FlatSymbolTable globals, Binding globalsTop) {
+        this.names = names;
+        this.globals = globals;
+        this.globalsTop = globalsTop;
+        this.baseDepth = globals == null ? 0 : 1;
+    }
+
+    public void enterScope() {
+        if (++scope == scopes.length)
+            scopes = Arrays.copyOf(scopes, 2 * scopes.length);
+        scopes[scope] = top;
+    }
+
+    public void exitScope() {
+        if (scope == 0)
+            throw new IllegalStateException("The outermost scope of a symbol table can't be exited.");
+
+        Binding outside = scopes[scope];
+        scopes[scope--] = null;
+        for (Binding binding = top; binding != outside; binding = binding.outer)
+            innermost[binding.id] = binding.shadowed;
+        top = outside;
+    }
+
+    public int getDepth() {
+        return baseDepth + scope;
+    }
+
+    // Where the bindings of a scope start, given the innermost binding outside of it
+    private static int start(Binding outside) {
+        return outside == null ? 0 : outside.index + 1;
+    }
+
+    // A table with the scopes of this one for a body that is resolved later. The global scope is
+    // shared as it is now, the other scopes are copied. There has to be a scope open besides the
+    // global one.
+    public FlatSymbolTable detach() {
+        FlatSymbolTable table;
+        int first;
+        if (globals == null) {
+            if (scope == 0)
+                throw new IllegalStateException("Only a table with a scope besides the global one can be detached.");
+            table = new FlatSymbolTable(names, this, scopes[1]);
+            first = 1;
+        } else {
+            table = new FlatSymbolTable(names, globals, globalsTop);
+            first = 0;
+        }
+
+        Binding[] bindings = bindings(top, scopes[first]);
+        int s = first;
+        for (Binding binding : bindings) {
+            while (s < scope && start(scopes[s + 1]) <= binding.index) {
+                table.enterScope();
+                s++;
+            }
+            table.insert(binding.symbol);
+        }
+        for (; s < scope; s++)
+            table.enterScope();
+        return table;
+    }
+
+    // The bindings from the one after outside to top, in declaration order
+    private static Binding[] bindings(Binding top, Binding outside) {
+        int count = top == null ? 0 : top.index - (outside == null ? -1 : outside.index);
+        Binding[] bindings = new Binding[count];
+        for (Binding binding = top; binding != outside; binding = binding.outer)
+            bindings[--count] = binding;
+        return bindings;
+    }
+
+    public Symbol lookup(String name) throws SymbolNotFoundError {
+        return lookup(names.intern(name));
+    }
+
+    public Symbol lookup(int id) throws SymbolNotFoundError {
+        Binding binding = id < innermost.length ? innermost[id] : null;
+        if (binding != null)
+            return binding.symbol;
+
+        if (globals != null && globalsTop != null && id < globals.innermost.length) {
+            //Names can only be declared once in the global scope, but while the other table
+            //had a scope open its bindings are on top of the globals
+            binding = globals.innermost[id];
+            while (binding != null && binding.index > globalsTop.index)
+                binding = binding.shadowed;
+            if (binding != null)
+                return binding.symbol;
+        }
+
+        throw new SymbolNotFoundError(names.name(id));
+    }
+
+    public Symbol insert(String name, Type type) throws RedeclarationError {
+        return insert(new Symbol(name, names.intern(name), type, -1));
+    }
+
+    public Symbol insert(Symbol symbol) throws RedeclarationError {
+        int id = symbol.id() >= 0 ? symbol.id() : names.intern(symbol.name());
+        if (id >= innermost.length)
+            innermost = Arrays.copyOf(innermost, Math.max(id + 1, 2 * innermost.length));
+
+        Binding previous = innermost[id];
+        if (previous != null && previous.index >= start(scopes[scope]))
+            throw new RedeclarationError(symbol);
+
+        top = new Binding(symbol, top, previous, id);
+        innermost[id] = top;
+        return symbol;
+    }
+
+    // Inserts a function before its type is known, the type is given with setType
+    public Symbol insertUntyped(Symbol function) throws RedeclarationError {
+        function.setType(null);
+        insert(function);
+        untyped = function;
+        return function;
+    }
+
+    // Gives a symbol its type. Scopes taken before still show the function inserted with
+    // insertUntyped without one.
+    public void setType(Symbol symbol, Type type) {
+        symbol.setType(type);
+        if (symbol == untyped)
+            untyped = null;
+    }
+
+    // The scopes as they are now, to be printed later
+    public Scopes scopes() {
+        return new Scopes(this);
+    }
+
+    // The scopes of a table at one moment. Taking one only copies where each scope starts.
+    public static final class Scopes {
+        private final Binding globalsTop;
+        private final boolean detached;
+        private final Binding top;
+        private final Binding[] scopes;
+        private final Symbol untyped;
+
+        private Scopes(FlatSymbolTable table) {
+            this.globalsTop = table.globalsTop;
+            this.detached = table.globals != null;
+            this.top = table.top;
+            this.scopes = Arrays.copyOf(table.scopes, table.scope + 1);
+            this.untyped = table.untyped;
+        }
+
+        private void append(StringBuilder sb, Binding binding) {
+            Symbol symbol = binding.symbol;
+            sb.append(symbol == untyped ? symbol.toString(null) : symbol.toString());
+            sb.append("\n");
+        }
+
+        public String toString() {
+            //The outermost scope is printed first
+            StringBuilder sb = new StringBuilder();
+            if (detached)
+                for (Binding binding : bindings(globalsTop, null))
+                    append(sb, binding);
+
+            int s = 0;
+            String indent = detached ? "  " : "";
+            for (Binding binding : bindings(top, null)) {
+                while (s + 1 < scopes.length && start(scopes[s + 1]) <= binding.index) {
+                    s++;
+                    indent += "  ";
+                }
+                sb.append(indent);
+                append(sb, binding);
+            }
+            return sb.toString();
+        }
+    }
+
+    public String toString() {
+        return scopes().toString();
+    }
+}
@@ -0,0 +1,38 @@
+package crux;
+
+// Gives every distinct identifier of a compilation a small int ID, counting up from 0, and keeps
+// one String for each. The phases after the scanner key their tables on the IDs, so a symbol
+// table or a label cache is an array indexed by ID and names are only hashed and compared here.
+// One is shared by all the sources of a compilation (see Source.setInterner).
+public interface Interner {
+
+    // The ID of name
+    int intern(String name);
+
+    // The ID of the name at [start, end) in source, without making a String if it has one
+    int intern(Source source, int start, int end);
+
+    // The one String for an ID
+    String name(int id);
+
+    // How many names have an ID, every ID is below this
+    int size();
+
+    // The hash a name has as a String, so names found in a source and in Strings agree
+    static int hash(Source source, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++)
+            hash = 31 * hash + source.charAt(i);
+        return hash;
+    }
+
+    static boolean regionMatches(String name, Source source, int start, int end) {
+        if (name.length() != end - start)
+            return false;
+        for (int i = start; i < end; i++) {
+            if (name.charAt(i - start) != source.charAt(i))
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,66 @@
+package crux;
+
+import java.util.ArrayList;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Turns every grammar rule into a JFR event that lasts from entering the rule to leaving it,
+// so a recording shows which rules the parser spends its time in. Rules that are still open
+// when the parse stops with an error, or that are abandoned when it recovers from one, are
+// never committed.
+public final class JfrParseListener implements ParseListener {
+
+    @Name("crux.ParseRule")
+    @Label("Parse Rule")
+    @Category({"Crux", "Parser"})
+    @Description("A grammar rule from entering it to leaving it, including the rules inside it")
+    @StackTrace(false)
+    static final class RuleEvent extends Event {
+        @Label("Rule")
+        String rule;
+
+        @Label("First Token")
+        int firstToken;
+
+        @Label("Tokens")
+        int tokens;
+
+        @Label("Depth")
+        int depth;
+    }
+
+    private final ArrayList<RuleEvent> open = new ArrayList<>();
+
+    @Override
+    public void enterRule(NonTerminal rule, int token, int depth) {
+        abandon(depth);
+        RuleEvent event = new RuleEvent();
+        event.rule = rule.name();
+        event.firstToken = token;
+        event.depth = depth;
+        event.begin();
+        open.add(event);
+    }
+
+    @Override
+    public void exitRule(NonTerminal rule, int token, int depth) {
+        RuleEvent event = open.get(depth);
+        abandon(depth);
+        event.end();
+        if (event.shouldCommit()) {
+            event.tokens = token - event.firstToken;
+            event.commit();
+        }
+    }
+
+    // Forgets the rules at depth and below
+    private void abandon(int depth) {
+        while (open.size() > depth)
+            open.remove(open.size() - 1);
+    }
+}
@@ -0,0 +1,155 @@
+package crux;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Lookup tables for the Scanner, all generated from the lexemes in Token.Kind when the class loads:
+//  - a character class for every ASCII character
+//  - a DFA (a trie over the punctuation lexemes) for operators and the start of a comment
+//  - a perfect hash from (length, first char, last char) to the keyword it could be
+final class LexerTables {
+
+    // Character classes
+    static final byte OTHER = 0;
+    static final byte WHITESPACE = 1;
+    static final byte NEWLINE = 2;
+    static final byte DIGIT = 3;
+    static final byte LETTER = 4;
+    static final byte PUNCTUATION = 5;
+    static final byte END = 6;
+
+    private static final byte[] CLASSES = new byte[128];
+
+    // DFA states, state 0 is the start state and -1 means there is no transition
+    static final int START = 0;
+    static final int NONE = -1;
+
+    private static int[] transitions = new int[128];
+    private static Token.Kind[] accepting = new Token.Kind[1];
+    private static int stateCount = 1;
+    static final int COMMENT;
+
+    // Keyword perfect hash
+    private static final Token.Kind[] KEYWORDS;
+    private static final int KEYWORD_MASK;
+    private static final int KEYWORD_SEED;
+
+    private LexerTables() {
+    }
+
+    static {
+        for (int c = 0; c < 128; c++) {
+            if (c == '\n')
+                CLASSES[c] = NEWLINE;
+            else if (Character.isWhitespace(c))
+                CLASSES[c] = WHITESPACE;
+            else if (Character.isDigit(c))
+                CLASSES[c] = DIGIT;
+            else if (Character.isLetter(c) || c == '_')
+                CLASSES[c] = LETTER;
+        }
+        Arrays.fill(transitions, NONE);
+
+        List<Token.Kind> keywords = new ArrayList<>();
+        for (Token.Kind kind : Token.Kind.values()) {
+            if (!kind.hasStaticLexeme())
+                continue;
+            if (classOf(kind.lexeme().charAt(0)) == LETTER)
+                keywords.add(kind);
+            else
+                addPunctuation(kind.lexeme(), kind);
+        }
+        COMMENT = addPunctuation("//", null);
+
+        //Search for the smallest table (and a seed for it) where no two keywords share a slot
+        Token.Kind[] table = null;
+        int size = 16;
+        int seed = 0;
+        while (table == null) {
+            for (seed = 1; seed < 256 && table == null; seed++)
+                table = tryBuildKeywordTable(keywords, size - 1, seed);
+            if (table == null)
+                size *= 2;
+        }
+        KEYWORDS = table;
+        KEYWORD_MASK = size - 1;
+        KEYWORD_SEED = seed - 1;
+    }
+
+    private static int addPunctuation(String lexeme, Token.Kind kind) {
+        int state = START;
+        for (int i = 0; i < lexeme.length(); i++) {
+            char c = lexeme.charAt(i);
+            if (state == START)
+                CLASSES[c] = PUNCTUATION;
+            if (transitions[state * 128 + c] == NONE) {
+                if (stateCount == accepting.length) {
+                    accepting = Arrays.copyOf(accepting, stateCount * 2);
+                    transitions = Arrays.copyOf(transitions, stateCount * 2 * 128);
+                    Arrays.fill(transitions, stateCount * 128, transitions.length, NONE);
+                }
+                transitions[state * 128 + c] = stateCount++;
+            }
+            state = transitions[state * 128 + c];
+        }
+        accepting[state] = kind;
+        return state;
+    }
+
+    private static Token.Kind[] tryBuildKeywordTable(List<Token.Kind> keywords, int mask, int seed) {
+        Token.Kind[] table = new Token.Kind[mask + 1];
+        for (Token.Kind kind : keywords) {
+            String lexeme = kind.lexeme();
+            int slot = keywordHash(seed, lexeme.length(), lexeme.charAt(0), lexeme.charAt(lexeme.length() - 1)) & mask;
+            if (table[slot] != null)
+                return null;
+            table[slot] = kind;
+        }
+        return table;
+    }
+
+    private static int keywordHash(int seed, int length, int first, int last) {
+        return (first * seed + last) * 31 + length;
+    }
+
+    // The class of any character the Scanner can see, including -1 for the end of the source.
+    // Characters outside ASCII are classified the same way the Character methods always did.
+    static byte classOf(int c) {
+        if (c >= 0 && c < 128)
+            return CLASSES[c];
+        if (c == -1)
+            return END;
+        if (Character.isWhitespace(c))
+            return WHITESPACE;
+        if (Character.isDigit(c))
+            return DIGIT;
+        if (Character.isLetter(c))
+            return LETTER;
+        return OTHER;
+    }
+
+    static boolean isIdentifierPart(int c) {
+        byte type = classOf(c);
+        return type == LETTER || type == DIGIT;
+    }
+
+    static int transition(int state, int c) {
+        if (c < 0 || c >= 128)
+            return NONE;
+        return transitions[state * 128 + c];
+    }
+
+    static Token.Kind accepting(int state) {
+        return accepting[state];
+    }
+
+    // Returns the keyword spelled by source[start, start+length), or null for a plain identifier
+    static Token.Kind keyword(Source source, int start, int length) {
+        int hash = keywordHash(KEYWORD_SEED, length, source.charAt(start), source.charAt(start + length - 1));
+        Token.Kind candidate = KEYWORDS[hash & KEYWORD_MASK];
+        if (candidate != null && candidate.matches(source, start, length))
+            return candidate;
+        return null;
+    }
+}
@@ -0,0 +1,80 @@
+package crux;
+
+import java.util.Arrays;
+
+// An Interner for a compilation that runs on one thread: an open addressing table of IDs and an
+// array from ID to name.
+public final class NameTable implements Interner {
+
+    //The ID in each slot, -1 for an empty one
+    private int[] slots = new int[256];
+    private String[] names = new String[128];
+    private int size = 0;
+
+    public NameTable() {
+        Arrays.fill(slots, -1);
+    }
+
+    @Override
+    public int intern(String name) {
+        int hash = name.hashCode();
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        int id;
+        while ((id = slots[slot]) >= 0) {
+            String candidate = names[id];
+            if (candidate == name || candidate.hashCode() == hash && candidate.equals(name))
+                return id;
+            slot = (slot + 1) & mask;
+        }
+        return add(slot, name);
+    }
+
+    @Override
+    public int intern(Source source, int start, int end) {
+        int hash = Interner.hash(source, start, end);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        int id;
+        while ((id = slots[slot]) >= 0) {
+            String candidate = names[id];
+            if (candidate.hashCode() == hash && Interner.regionMatches(candidate, source, start, end))
+                return id;
+            slot = (slot + 1) & mask;
+        }
+        return add(slot, source.substring(start, end));
+    }
+
+    private int add(int slot, String name) {
+        if (size == names.length)
+            names = Arrays.copyOf(names, 2 * size);
+        int id = size++;
+        names[id] = name;
+        slots[slot] = id;
+        if (2 * size > slots.length)
+            grow();
+        return id;
+    }
+
+    private void grow() {
+        slots = new int[2 * slots.length];
+        Arrays.fill(slots, -1);
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = names[id].hashCode() & mask;
+            while (slots[slot] >= 0)
+                slot = (slot + 1) & mask;
+            slots[slot] = id;
+        }
+    }
+
+    @Override
+    public String name(int id) {
+        return names[id];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -1,5 +1,6 @@
 package crux;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Set;
 
 public enum NonTerminal {
@@ -8,180 +9,105 @@ public enum NonTerminal {
     // TODO: mention that we are not doing a first set for every line in the grammar
     //       some lines have already been handled by the CruxScanner
     
-    DESIGNATOR(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.IDENTIFIER);
-        }}),
-    TYPE(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.IDENTIFIER);
-        }}),
-    LITERAL(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.INTEGER);
-            add(Token.Kind.FLOAT);
-            add(Token.Kind.TRUE);
-            add(Token.Kind.FALSE);
+    DESIGNATOR(Token.Kind.IDENTIFIER),
+    TYPE(Token.Kind.IDENTIFIER),
+    LITERAL(Token.Kind.INTEGER, Token.Kind.FLOAT, Token.Kind.TRUE, Token.Kind.FALSE),
+    CALL_EXPRESSION(Token.Kind.CALL),
+    OP0(Token.Kind.GREATER_EQUAL, Token.Kind.LESSER_EQUAL, Token.Kind.NOT_EQUAL, Token.Kind.EQUAL, Token.Kind.GREATER_THAN, Token.Kind.LESS_THAN),
+    OP1(Token.Kind.ADD, Token.Kind.SUB, Token.Kind.OR),
+    OP2(Token.Kind.MUL, Token.Kind.DIV, Token.Kind.AND),
+    EXPRESSION3(EnumSet.of(Token.Kind.NOT, Token.Kind.OPEN_PAREN), DESIGNATOR, CALL_EXPRESSION, LITERAL),
+    EXPRESSION2(EXPRESSION3),
+    EXPRESSION1(EXPRESSION2),
+    EXPRESSION0(EXPRESSION1),
+    EXPRESSION_LIST(EXPRESSION0),
+    PARAMETER(Token.Kind.IDENTIFIER),
+    PARAMETER_LIST(PARAMETER),
+    VARIABLE_DECLARATION(Token.Kind.VAR),
+    ARRAY_DECLARATION(Token.Kind.ARRAY),
+    FUNCTION_DEFINITION(Token.Kind.FUNC),
+    DECLARATION(VARIABLE_DECLARATION, ARRAY_DECLARATION, FUNCTION_DEFINITION),
+    DECLARATION_LIST(DECLARATION),
+    ASSIGNMENT_STATEMENT(Token.Kind.LET),
+    CALL_STATEMENT(CALL_EXPRESSION),
+    IF_STATEMENT(Token.Kind.IF),
+    WHILE_STATEMENT(Token.Kind.WHILE),
+    RETURN_STATEMENT(Token.Kind.RETURN),
+    STATEMENT_BLOCK(Token.Kind.OPEN_BRACE),
+    STATEMENT(VARIABLE_DECLARATION, CALL_STATEMENT, ASSIGNMENT_STATEMENT, IF_STATEMENT, WHILE_STATEMENT, RETURN_STATEMENT),
+    STATEMENT_LIST(STATEMENT),
+    PROGRAM(DECLARATION_LIST);
 
-        }}),
-    CALL_EXPRESSION(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.CALL);
-        }}),
-    OP0(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.GREATER_EQUAL);
-            add(Token.Kind.LESSER_EQUAL);
-            add(Token.Kind.NOT_EQUAL);
-            add(Token.Kind.EQUAL);
-            add(Token.Kind.GREATER_THAN);
-            add(Token.Kind.LESS_THAN);
-       }}),
-    OP1(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.ADD);
-            add(Token.Kind.SUB);
-            add(Token.Kind.OR);
-       }}),
-    OP2(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.MUL);
-            add(Token.Kind.DIV);
-            add(Token.Kind.AND);
-       }}),
-    EXPRESSION3(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.NOT);
-            add(Token.Kind.OPEN_PAREN);
-            addAll(DESIGNATOR.firstSet);
-            addAll(CALL_EXPRESSION.firstSet);
-            addAll(LITERAL.firstSet);
-       }}),
-    EXPRESSION2(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            addAll(EXPRESSION3.firstSet);
-        }}),
-    EXPRESSION1(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            addAll(EXPRESSION2.firstSet);
-        }}),
-    EXPRESSION0(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            addAll(EXPRESSION1.firstSet);
-        }}),
-    EXPRESSION_LIST(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            addAll(EXPRESSION0.firstSet);
-        }}),
-    PARAMETER(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.IDENTIFIER);
-        }}),
-    PARAMETER_LIST(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            addAll(PARAMETER.firstSet);
-        }}),
-    VARIABLE_DECLARATION(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.VAR);
-        }}),
-    ARRAY_DECLARATION(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.ARRAY);
-        }}),
-    FUNCTION_DEFINITION(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.FUNC);
-        }}),
-    DECLARATION(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            addAll(VARIABLE_DECLARATION.firstSet);
-            addAll(ARRAY_DECLARATION.firstSet);
-            addAll(FUNCTION_DEFINITION.firstSet);
-        }}),
-    DECLARATION_LIST(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            addAll(DECLARATION.firstSet);
-        }}),    
-    ASSIGNMENT_STATEMENT(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.LET);
-        }}),
-    CALL_STATEMENT(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            addAll(CALL_EXPRESSION.firstSet);
-        }}),
-    IF_STATEMENT(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.IF);
-        }}),
-    WHILE_STATEMENT(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.WHILE);
-        }}),
-    RETURN_STATEMENT(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.RETURN);
-        }}),
-    STATEMENT_BLOCK(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            add(Token.Kind.OPEN_BRACE);
-        }}),
-    STATEMENT(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            addAll(VARIABLE_DECLARATION.firstSet);
-            addAll(CALL_STATEMENT.firstSet);
-            addAll(ASSIGNMENT_STATEMENT.firstSet);
-            addAll(IF_STATEMENT.firstSet);
-            addAll(WHILE_STATEMENT.firstSet);
-            addAll(RETURN_STATEMENT.firstSet);
-        }}),
-    STATEMENT_LIST(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            addAll(STATEMENT.firstSet);
-        }}),
-    PROGRAM(new HashSet<Token.Kind>() {
-        private static final long serialVersionUID = 1L;
-        {
-            addAll(DECLARATION_LIST.firstSet);
-        }});
-           
-    public final HashSet<Token.Kind> firstSet = new HashSet<Token.Kind>();
+    //FIRST set as a bit mask over Token.Kind ordinals (there are fewer than 64 kinds)
+    private final long first;
 
-    NonTerminal(HashSet<Token.Kind> t)
+    NonTerminal(Token.Kind first, Token.Kind... rest)
     {
-        firstSet.addAll(t);
+        this(EnumSet.of(first, rest));
     }
-    
+
+    NonTerminal(NonTerminal... includes)
+    {
+        this(EnumSet.noneOf(Token.Kind.class), includes);
+    }
+
+    NonTerminal(EnumSet<Token.Kind> kinds, NonTerminal... includes)
+    {
+        long first = 0;
+        for (Token.Kind kind : kinds)
+            first |= bit(kind);
+        for (NonTerminal include : includes)
+            first |= include.first;
+        this.first = first;
+    }
+
+    private static long bit(Token.Kind kind)
+    {
+        return 1L << kind.ordinal();
+    }
+
+    static long bits(Token.Kind... kinds)
+    {
+        long bits = 0;
+        for (Token.Kind kind : kinds)
+            bits |= bit(kind);
+        return bits;
+    }
+
+    public final boolean starts(Token.Kind kind)
+    {
+        return (first & bit(kind)) != 0;
+    }
+
+    public final long firstBits()
+    {
+        return first;
+    }
+
     public final Set<Token.Kind> firstSet()
     {
-        return firstSet;
+        EnumSet<Token.Kind> set = EnumSet.noneOf(Token.Kind.class);
+        for (Token.Kind kind : Token.Kind.values()) {
+            if (starts(kind))
+                set.add(kind);
+        }
+        return Collections.unmodifiableSet(set);
+    }
+
+    // Builds a predictive dispatch table for a rule with the given alternatives (as FIRST bit masks).
+    // Entry i is 1 + the index of the alternative that a token of ordinal i starts, or 0 if none does.
+    static byte[] dispatchTable(long... alternatives)
+    {
+        byte[] table = new byte[Token.Kind.values().length];
+        for (int i = 0; i < alternatives.length; i++) {
+            for (int ordinal = 0; ordinal < table.length; ordinal++) {
+                if ((alternatives[i] & (1L << ordinal)) == 0)
+                    continue;
+                if (table[ordinal] != 0)
+                    throw new IllegalStateException("Alternatives " + (table[ordinal] - 1) + " and " + i + " share a FIRST token");
+                table[ordinal] = (byte) (i + 1);
+            }
+        }
+        return table;
     }
 }
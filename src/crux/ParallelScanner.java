@@ -0,0 +1,99 @@
+package crux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Lexes one large source on several threads.
+// Crux has no token that spans lines (comments end at the newline), so the source is cut
+// into chunks that each start at the beginning of a line and every chunk is scanned on its own.
+// Token positions are offsets into the whole source, so the results are simply joined.
+public class ParallelScanner {
+
+    //Below this many characters per chunk the threads cost more than they save
+    private static final int MIN_CHUNK_SIZE = 64 * 1024;
+
+    private final Source source;
+    private final ForkJoinPool pool;
+    private final int chunks;
+
+    public ParallelScanner(Source source) {
+        this(source, ForkJoinPool.commonPool());
+    }
+
+    public ParallelScanner(Source source, ForkJoinPool pool) {
+        this(source, pool, Math.max(1, Math.min(pool.getParallelism(), source.length() / MIN_CHUNK_SIZE)));
+    }
+
+    public ParallelScanner(Source source, ForkJoinPool pool, int chunks) {
+        this.source = source;
+        this.pool = pool;
+        this.chunks = Math.max(1, chunks);
+    }
+
+    // Returns every token in the source in order, the last one is always the EOF token
+    public Token[] scan() {
+        int[] bounds = chunkBounds();
+        int count = bounds.length - 1;
+
+        List<ForkJoinTask<List<Token>>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int start = bounds[i];
+            int end = bounds[i + 1];
+            tasks.add(pool.submit(() -> scanChunk(start, end)));
+        }
+
+        List<List<Token>> results = new ArrayList<>(count);
+        int total = 0;
+        for (ForkJoinTask<List<Token>> task : tasks) {
+            List<Token> tokens = task.join();
+            results.add(tokens);
+            total += tokens.size();
+        }
+
+        //Every chunk ends in its own EOF token, only the one from the last chunk is kept
+        Token[] joined = new Token[total - (count - 1)];
+        int index = 0;
+        for (int i = 0; i < count; i++) {
+            List<Token> tokens = results.get(i);
+            int last = i == count - 1 ? tokens.size() : tokens.size() - 1;
+            for (int j = 0; j < last; j++)
+                joined[index++] = tokens.get(j);
+        }
+        return joined;
+    }
+
+    private List<Token> scanChunk(int start, int end) {
+        Scanner scanner = new Scanner(source, start, end);
+        List<Token> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = scanner.next();
+            tokens.add(token);
+        } while (!token.is(Token.Kind.EOF));
+        return tokens;
+    }
+
+    // Cuts the source into (at most) the requested number of chunks, each one ends just after a newline
+    private int[] chunkBounds() {
+        int length = source.length();
+        List<Integer> bounds = new ArrayList<>(chunks + 1);
+        bounds.add(0);
+        for (int i = 1; i < chunks; i++) {
+            int cut = Math.max((int) ((long) length * i / chunks), bounds.get(bounds.size() - 1));
+            while (cut < length && source.charAt(cut) != '\n')
+                cut++;
+            if (cut + 1 < length)
+                bounds.add(cut + 1);
+            else
+                break;
+        }
+        bounds.add(length);
+
+        int[] result = new int[bounds.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = bounds.get(i);
+        return result;
+    }
+}
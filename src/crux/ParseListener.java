@@ -0,0 +1,10 @@
+package crux;
+
+// Told about every grammar rule the Parser enters and leaves.
+// token is the index of the current token, depth is how many rules are open around this one.
+public interface ParseListener {
+
+    void enterRule(NonTerminal rule, int token, int depth);
+
+    void exitRule(NonTerminal rule, int token, int depth);
+}
@@ -0,0 +1,76 @@
+package crux;
+
+import java.util.Arrays;
+
+// Records the rule events of a parse in one int array, three ints an event: the rule (negated
+// and minus one for an exit), the token index and the depth. Nothing is turned into text until
+// the tree is asked for.
+public final class ParseTrace implements ParseListener {
+
+    private static final NonTerminal[] RULES = NonTerminal.values();
+
+    private int[] events = new int[3 * 256];
+    private int size = 0;
+
+    @Override
+    public void enterRule(NonTerminal rule, int token, int depth) {
+        add(rule.ordinal(), token, depth);
+    }
+
+    @Override
+    public void exitRule(NonTerminal rule, int token, int depth) {
+        add(-rule.ordinal() - 1, token, depth);
+    }
+
+    private void add(int rule, int token, int depth) {
+        if (size == events.length)
+            events = Arrays.copyOf(events, size * 2);
+        events[size] = rule;
+        events[size + 1] = token;
+        events[size + 2] = depth;
+        size += 3;
+    }
+
+    // Adds the events [from, to) of another trace, for putting a parallel parse back together
+    public void append(ParseTrace other, int from, int to) {
+        int count = 3 * (to - from);
+        if (size + count > events.length)
+            events = Arrays.copyOf(events, Math.max(2 * events.length, size + count));
+        System.arraycopy(other.events, 3 * from, events, size, count);
+        size += count;
+    }
+
+    public int size() {
+        return size / 3;
+    }
+
+    public boolean isEnter(int event) {
+        return events[3 * event] >= 0;
+    }
+
+    public NonTerminal rule(int event) {
+        int rule = events[3 * event];
+        return RULES[rule >= 0 ? rule : -rule - 1];
+    }
+
+    public int token(int event) {
+        return events[3 * event + 1];
+    }
+
+    public int depth(int event) {
+        return events[3 * event + 2];
+    }
+
+    // The parse tree as one line per rule entered, indented two spaces a level
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i += 3) {
+            if (events[i] < 0)
+                continue;
+            for (int d = events[i + 2]; d > 0; d--)
+                sb.append("  ");
+            sb.append(RULES[events[i]].name()).append('\n');
+        }
+        return sb.toString();
+    }
+}
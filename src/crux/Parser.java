@@ -5,9 +5,13 @@ import ast.Error;
 import types.*;
 
 import java.time.temporal.ValueRange;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
 
 import static crux.NonTerminal.*;
 
@@ -17,104 +21,96 @@ public class Parser {
     public static String uciNetID = "eawolfe";
 
     // Grammar Rule Reporting ==========================================
-    private int parseTreeRecursionDepth = 0;
-    private StringBuffer parseTreeBuffer = new StringBuffer();
-
-    private SymbolTable symbolTable;
-
-    private void initSymbolTable() {
-        symbolTable = new SymbolTable(null, 0);
-
-        TypeList emptyTypeList = new TypeList();
-
-        symbolTable.insert("readInt", new FuncType(emptyTypeList, new IntType()));
-        symbolTable.insert("readFloat", new FuncType(emptyTypeList, new FloatType()));
-
-        TypeList boolTypeList = new TypeList();
-        boolTypeList.append(new BoolType());
-
-        symbolTable.insert("printBool", new FuncType(boolTypeList, new VoidType()));
-
-        TypeList intTypeList = new TypeList();
-        intTypeList.append(new IntType());
-
-        symbolTable.insert("printInt", new FuncType(intTypeList, new VoidType()));
-
-        TypeList floatTypeList = new TypeList();
-        floatTypeList.append(new FloatType());
-
-        symbolTable.insert("printFloat", new FuncType(floatTypeList, new VoidType()));
+    // Rule events are only recorded by a parser that asks for them with setTrace(true), or by
+    // every parser with -Dcrux.trace=true. Otherwise parseTreeReport() is empty.
+    // -Dcrux.trace=false turns rule events off altogether: TRACING is a constant, so the JIT
+    // drops the checks in enterRule and exitRule and no parser can ask for the events.
+    static final boolean TRACING = !"false".equals(System.getProperty("crux.trace"));
+    private static final boolean TRACE_ALL = Boolean.getBoolean("crux.trace");
 
-        symbolTable.insert("println", new FuncType(emptyTypeList, new VoidType()));
-    }
+    private int parseTreeRecursionDepth = 0;
+    private boolean trace = TRACE_ALL;
+    private ParseTrace parseTrace = trace ? new ParseTrace() : null;
+    private ParseListener parseListener;
+    //Whether the rule events go anywhere, to the trace or to the listener
+    private boolean reportRules = trace;
+
+    // Name Binding ==========================================
+    // The parser only writes down the names it sees, in the tree and in the binding log. They
+    // are bound to symbols by a Resolver after the parse (see parse()). An ast.Error takes the
+    // bindings of what it replaced along, and the tree so far is in the log when the parse quits.
+    private BindingLog bindings = new BindingLog();
+    private int scopeDepth = 0;
+    private boolean resolveSymbols = true;
+    private Resolver resolver;
 
     private void enterScope() {
-        symbolTable = new SymbolTable(symbolTable, symbolTable.getDepth() + 1);
+        bindings.enterScope();
+        scopeDepth++;
     }
 
     private void exitScope() {
-        symbolTable = symbolTable.getParentTable();
+        bindings.exitScope();
+        scopeDepth--;
     }
 
-    private TypeList buildTypeList(List<Symbol> parameters) {
-        TypeList list = new TypeList();
-        for (Symbol symbol : parameters) {
-            list.append(symbol.type());
-        }
-        return list;
+    private void exitScopes(int depth) {
+        while (scopeDepth > depth)
+            exitScope();
     }
 
-    private Symbol tryResolveSymbol(Token ident) {
+    private Symbol declareSymbol(Token ident, Type type) {
+        assert (ident.is(Token.Kind.IDENTIFIER));
+        Symbol symbol = new Symbol(ident.lexeme(), ident.nameId(), type, ident.location());
+        bindings.declare(symbol);
+        return symbol;
+    }
+
+    private String referenceSymbol(Token ident) {
         assert (ident.is(Token.Kind.IDENTIFIER));
         String name = ident.lexeme();
-        try {
-            return symbolTable.lookup(name);
-        } catch (SymbolNotFoundError e) {
-            String message = reportResolveSymbolError(name, ident.lineNumber(), ident.charPosition());
-            return new ErrorSymbol(message);
-        }
+        bindings.reference(name, ident.location());
+        return name;
     }
 
-    private String reportResolveSymbolError(String name, int lineNum, int charPos) {
-        String message = "ResolveSymbolError(" + lineNum + "," + charPos + ")[Could not find " + name + ".]";
-        errorBuffer.append(message);
-        errorBuffer.append("\n");
-        errorBuffer.append(symbolTable.toString());
-        errorBuffer.append("\n");
-        return message;
+    public void enterRule(NonTerminal nonTerminal) {
+        if (TRACING && reportRules) {
+            if (trace)
+                parseTrace.enterRule(nonTerminal, tokens.index(), parseTreeRecursionDepth);
+            if (parseListener != null)
+                parseListener.enterRule(nonTerminal, tokens.index(), parseTreeRecursionDepth);
+            parseTreeRecursionDepth++;
+        }
     }
 
-    private Symbol tryDeclareSymbol(Token ident, Type type) {
-        assert (ident.is(Token.Kind.IDENTIFIER));
-        String name = ident.lexeme();
-        try {
-            return symbolTable.insert(name, type);
-        } catch (RedeclarationError re) {
-            String message = reportDeclareSymbolError(name, ident.lineNumber(), ident.charPosition());
-            return new ErrorSymbol(message);
+    private void exitRule(NonTerminal nonTerminal) {
+        if (TRACING && reportRules) {
+            parseTreeRecursionDepth--;
+            if (trace)
+                parseTrace.exitRule(nonTerminal, tokens.index(), parseTreeRecursionDepth);
+            if (parseListener != null)
+                parseListener.exitRule(nonTerminal, tokens.index(), parseTreeRecursionDepth);
         }
     }
 
-    private String reportDeclareSymbolError(String name, int lineNum, int charPos) {
-        String message = "DeclareSymbolError(" + lineNum + "," + charPos + ")[" + name + " already exists.]";
-        errorBuffer.append(message + "\n");
-        errorBuffer.append(symbolTable.toString() + "\n");
-        return message;
+    // Records every rule event, for parseTreeReport(). Set it before parse(). Has no effect
+    // with -Dcrux.trace=false.
+    public void setTrace(boolean trace) {
+        this.trace = TRACING && trace;
+        parseTrace = this.trace ? new ParseTrace() : null;
+        reportRules = this.trace || parseListener != null;
     }
 
-    public void enterRule(NonTerminal nonTerminal) {
-//        String lineData = new String();
-//        for (int i = 0; i < parseTreeRecursionDepth; i++) {
-//            lineData += "  ";
-//        }
-//        lineData += nonTerminal.name();
-//        //System.out.println("descending " + lineData);
-//        parseTreeBuffer.append(lineData + "\n");
-//        parseTreeRecursionDepth++;
+    // Sends the rule events to listener, for example a JfrParseListener, as they happen. The
+    // events are only kept as well if the trace is on. Has no effect with -Dcrux.trace=false.
+    public void setParseListener(ParseListener listener) {
+        this.parseListener = TRACING ? listener : null;
+        reportRules = trace || parseListener != null;
     }
 
-    private void exitRule(NonTerminal nonTerminal) {
-//        parseTreeRecursionDepth--;
+    // Every rule event of the parse, or null when the trace is off
+    public ParseTrace parseTrace() {
+        return parseTrace;
     }
 
     private Type tryResolveType(String typeStr) {
@@ -122,30 +118,50 @@ public class Parser {
     }
 
     public String parseTreeReport() {
-        return parseTreeBuffer.toString();
+        return trace ? parseTrace.report() : "";
+    }
+
+    private int traceSize() {
+        return trace ? parseTrace.size() : 0;
     }
 
     // Error Reporting ==========================================
-    private StringBuffer errorBuffer = new StringBuffer();
+    //Only the syntax errors until the parse is done, then the resolver's errors are merged in
+    private ErrorLog errors = new ErrorLog();
+    private int syntaxErrorCount = 0;
+    //Where the last syntax error was, -1 before the first
+    private int lastErrorOffset = -1;
 
     private String reportSyntaxError(NonTerminal nt) {
-        String message = "SyntaxError(" + lineNumber() + "," + charPosition() + ")[Expected a token from " + nt.name() + " but got " + currentToken.kind() + ".]";
-        errorBuffer.append(message + "\n");
-        return message;
+        return syntaxError(Diagnostic.expectedRule(tokens.source(), location(), nt, tokens.kind()));
     }
 
     private String reportSyntaxError(Token.Kind kind) {
-        String message = "SyntaxError(" + lineNumber() + "," + charPosition() + ")[Expected " + kind + " but got " + currentToken.kind() + ".]";
-        errorBuffer.append(message + "\n");
-        return message;
+        return syntaxError(Diagnostic.expectedToken(tokens.source(), location(), kind, tokens.kind()));
+    }
+
+    // A syntax error at the same token as the one before it is only the same mistake seen again by
+    // the enclosing rules, such as every block around a missing "}". It still ends the rule it is
+    // in but is not reported or counted.
+    private String syntaxError(Diagnostic diagnostic) {
+        if (diagnostic.location() == lastErrorOffset)
+            return diagnostic.message();
+        lastErrorOffset = diagnostic.location();
+        errors.add(diagnostic, traceSize());
+        syntaxErrorCount++;
+        return diagnostic.message();
     }
 
     public String errorReport() {
-        return errorBuffer.toString();
+        return errors.toString();
+    }
+
+    public ErrorLog errors() {
+        return errors;
     }
 
     public boolean hasError() {
-        return errorBuffer.length() != 0;
+        return !errors.isEmpty();
     }
 
     private class QuitParseException extends RuntimeException {
@@ -156,44 +172,335 @@ public class Parser {
         }
     }
 
-    private int lineNumber() {
-        return currentToken.lineNumber();
+    // Error Recovery ==========================================
+    // With more than one error allowed, a syntax error doesn't end the parse. The statement or
+    // declaration it happened in becomes an ast.Error, the tokens up to the next place a statement
+    // or declaration could start are skipped, and parsing goes on from there (panic mode).
+    // The parse stops like before once maxErrors syntax errors have been reported.
+    private int maxErrors = 1;
+
+    public void setMaxErrors(int maxErrors) {
+        this.maxErrors = Math.max(1, maxErrors);
+    }
+
+    private boolean canRecover() {
+        return syntaxErrorCount < maxErrors;
     }
 
-    private int charPosition() {
-        return currentToken.charPosition();
+    // Puts the scope and rule depth back to where the failed statement or declaration started
+    // and skips to the next ";" (which is skipped too), "}", "func", "var", "array" or the end.
+    // A "}" is only skipped at the top level, inside a block it ends the block. The error keeps
+    // the bindings from bindingMark on.
+    private ast.Error recover(QuitParseException quit, int scope, int ruleDepth, int bindingMark, boolean topLevel) {
+        if (syntaxErrorCount >= maxErrors)
+            throw quit;
+
+        exitScopes(scope);
+        parseTreeRecursionDepth = ruleDepth;
+        ast.Error error = new ast.Error(nodes, location(), quit.getMessage(), bindings.since(bindingMark));
+
+        while (true) {
+            switch (tokens.kind()) {
+                case SEMICOLON:
+                    tokens.advance();
+                    return error;
+                case CLOSE_BRACE:
+                    if (topLevel)
+                        tokens.advance();
+                    return error;
+                case FUNC:
+                case VAR:
+                case ARRAY:
+                case EOF:
+                    return error;
+                default:
+                    tokens.advance();
+            }
+        }
     }
 
+    private Statement statementOrError() {
+        int scope = scopeDepth;
+        int ruleDepth = parseTreeRecursionDepth;
+        int bindingMark = bindings.size();
+        try {
+            return statement();
+        } catch (QuitParseException quit) {
+            return recover(quit, scope, ruleDepth, bindingMark, false);
+        }
+    }
+
+    private Declaration declarationOrError() {
+        int scope = scopeDepth;
+        int ruleDepth = parseTreeRecursionDepth;
+        int bindingMark = bindings.size();
+        try {
+            //Anything else at the top level is where program() would have wanted the EOF
+            if (!has(DECLARATION))
+                throw new QuitParseException(reportSyntaxError(Token.Kind.EOF));
+            return declaration();
+        } catch (QuitParseException quit) {
+            return recover(quit, scope, ruleDepth, bindingMark, true);
+        }
+    }
+
+    private int location() {
+        return tokens.offset();
+    }
+
+    // Predictive dispatch tables, indexed by Token.Kind ordinal (see NonTerminal.dispatchTable)
+    private static final byte[] EXPRESSION3_TABLE = NonTerminal.dispatchTable(
+            NonTerminal.bits(Token.Kind.NOT), NonTerminal.bits(Token.Kind.OPEN_PAREN),
+            DESIGNATOR.firstBits(), CALL_EXPRESSION.firstBits(), LITERAL.firstBits());
+    //Binding power of the binary operators: 1 for op0, 2 for op1 and 3 for op2
+    private static final byte[] BINDING_POWER = NonTerminal.dispatchTable(
+            OP0.firstBits(), OP1.firstBits(), OP2.firstBits());
+    private static final byte[] DECLARATION_TABLE = NonTerminal.dispatchTable(
+            VARIABLE_DECLARATION.firstBits(), ARRAY_DECLARATION.firstBits(), FUNCTION_DEFINITION.firstBits());
+    private static final byte[] STATEMENT_TABLE = NonTerminal.dispatchTable(
+            VARIABLE_DECLARATION.firstBits(), CALL_STATEMENT.firstBits(), ASSIGNMENT_STATEMENT.firstBits(),
+            IF_STATEMENT.firstBits(), WHILE_STATEMENT.firstBits(), RETURN_STATEMENT.firstBits());
+
+    private static final NonTerminal[] EXPRESSION_LEVELS = {EXPRESSION0, EXPRESSION1, EXPRESSION2};
+    private static final NonTerminal[] OPERATOR_LEVELS = {OP0, OP1, OP2};
+
     // Parser ==========================================
-    private Scanner scanner;
-    private Token currentToken;
+    private TokenCursor tokens;
+    //Shared by every node of the parse, the bodies parsed in parallel included
+    private Nodes nodes;
+    private boolean explicitStack = false;
+    private boolean lazyBodies = false;
+    private ForkJoinPool bodyPool;
+    private List<SkippedBody> skippedBodies = new ArrayList<SkippedBody>();
 
     public Parser(Scanner scanner) {
-        this.scanner = scanner;
-        currentToken = scanner.next();
+        this.tokens = scanner.cursor();
+        this.nodes = new Nodes(tokens.source());
+    }
+
+    // Parses from tokens that were all scanned beforehand, no Token objects are made for
+    // keywords and punctuation
+    public Parser(TokenBuffer buffer) {
+        this.tokens = buffer.cursor();
+        this.nodes = new Nodes(tokens.source());
+    }
+
+    // Parses while the pipeline's scanner thread is still lexing
+    public Parser(TokenPipeline pipeline) {
+        this.tokens = pipeline;
+        this.nodes = new Nodes(tokens.source());
+    }
+
+    // Parses statements and expressions with a stack of frames on the heap instead of
+    // recursive calls, so nesting depth is not limited by the thread's stack size
+    public void setExplicitStack(boolean explicitStack) {
+        this.explicitStack = explicitStack;
+    }
+
+    // Leaves each function body unparsed until FunctionDefinition.body() is first called, so
+    // passes that only want the declarations and signatures skip the statements altogether.
+    // The errors in a body are reported when it is parsed. Only a TokenBuffer can go back to a
+    // body later, with any other input the bodies are parsed right away.
+    public void setLazyBodies(boolean lazyBodies) {
+        this.lazyBodies = lazyBodies;
+    }
+
+    // Parses the function bodies at the same time on pool, see Parallel Bodies below. Like lazy
+    // bodies this needs a TokenBuffer. null parses them one after the other again. The bodies
+    // intern their names at the same time, so the source can't use a NameTable.
+    public void setParallelBodies(ForkJoinPool pool) {
+        if (pool != null && tokens.source().interner() instanceof NameTable)
+            throw new IllegalArgumentException("Bodies parsed in parallel need a ConcurrentNameTable, not a NameTable.");
+        this.bodyPool = pool;
+    }
+
+    // Without resolving, parse() returns the tree with all of its names still unbound and only
+    // reports syntax errors, for running a Resolver on it separately
+    public void setResolveSymbols(boolean resolveSymbols) {
+        this.resolveSymbols = resolveSymbols;
     }
 
     public Command parse() {
-        initSymbolTable();
+        Command program;
         try {
-            return program();
+            program = program();
         } catch (QuitParseException q) {
-            return new ast.Error(lineNumber(), charPosition(), "Could not complete parsing.");
+            //The log has every declaration that was parsed and the bindings of the failed one
+            program = new ast.Error(nodes, location(), "Could not complete parsing.", bindings.since(0));
+        } finally {
+            //A pipeline's scanner thread stops when the parse quits before the end
+            tokens.close();
+        }
+        if (!skippedBodies.isEmpty())
+            return parseSkippedBodies(program);
+
+        if (resolveSymbols) {
+            resolver = new Resolver(tokens.source().interner(), explicitStack);
+            resolver.lazyBodies = lazyBodies;
+            resolver.resolve(program);
+            errors = ErrorLog.merge(errors, resolver.errors());
+        }
+        return program;
+    }
+
+    // Parallel Bodies ==========================================
+    // The parse itself is the pre-pass: it reads the declarations and each function's parameters
+    // and return type, but skips over the body and writes down where it was. The bodies are then
+    // parsed together on the pool, each by a Parser of its own, and the Resolver declares the
+    // globals and resolves the bodies in parallel too, each seeing the globals frozen as they
+    // were at its function. Afterwards the syntax errors and rule events of every body are put
+    // back where the body was and the result is the same as a sequential parse, up to the syntax
+    // error it would have stopped at. The parse listener only hears the pre-pass.
+    private static final class SkippedBody {
+        final int start;
+        final int end;
+        final int ruleDepth;
+
+        //How far the pre-pass had got with its syntax errors and rule events at the body
+        final int errorMark;
+        final int traceMark;
+
+        FunctionDefinition definition;
+        Parser parser;
+        StatementList statements;
+        boolean ended;
+
+        SkippedBody(int start, int end, int ruleDepth, int errorMark, int traceMark) {
+            this.start = start;
+            this.end = end;
+            this.ruleDepth = ruleDepth;
+            this.errorMark = errorMark;
+            this.traceMark = traceMark;
+        }
+    }
+
+    private Command parseSkippedBodies(Command program) {
+        TokenBuffer buffer = ((TokenBuffer.Cursor) tokens).buffer();
+        List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(skippedBodies.size());
+        for (SkippedBody body : skippedBodies) {
+            body.parser = new Parser(buffer);
+            body.parser.nodes = nodes;
+            body.parser.explicitStack = explicitStack;
+            body.parser.setTrace(trace);
+            body.parser.maxErrors = maxErrors;
+            tasks.add(bodyPool.submit(() -> body.parser.parseSkipped(body)));
+        }
+        for (ForkJoinTask<?> task : tasks)
+            task.join();
+
+        Merge merge = new Merge();
+        int errorFrom = 0;
+        int traceFrom = 0;
+        boolean complete = true;
+        for (SkippedBody body : skippedBodies) {
+            Parser parser = body.parser;
+            if (!merge.copy(this, errorFrom, body.errorMark, traceFrom, body.traceMark)
+                    || !merge.copy(parser, 0, parser.errors.size(), 0, parser.traceSize())) {
+                complete = false;
+                break;
+            }
+            //Recovering from an error made the body end somewhere else than its closing brace
+            if (!body.ended)
+                return parseSequentially(buffer);
+            errorFrom = body.errorMark;
+            traceFrom = body.traceMark;
+        }
+        if (complete)
+            complete = merge.copy(this, errorFrom, errors.size(), traceFrom, traceSize());
+
+        errors = merge.errors;
+        parseTrace = merge.trace;
+        syntaxErrorCount = merge.syntaxErrorCount;
+
+        if (resolveSymbols) {
+            //Every definition takes its body now, so the Resolver can get to it
+            for (SkippedBody body : skippedBodies)
+                body.definition.body();
+
+            resolver = new Resolver(tokens.source().interner(), explicitStack);
+            resolver.setParallelBodies(bodyPool);
+            resolver.resolve(program);
+
+            //Nothing after the syntax error a sequential parse stops at would have been resolved
+            ErrorLog resolved = resolver.errors();
+            if (!complete)
+                resolved = resolved.before(merge.quitLocation);
+            errors = ErrorLog.merge(errors, resolved);
+        }
+        return complete ? program : new ast.Error(nodes, merge.quitLocation, "Could not complete parsing.");
+    }
+
+    // Runs on the pool, in the body's own Parser
+    private void parseSkipped(SkippedBody body) {
+        TokenBuffer.Cursor cursor = (TokenBuffer.Cursor) tokens;
+        cursor.seek(body.start);
+        parseTreeRecursionDepth = body.ruleDepth;
+        try {
+            body.statements = statement_block(false);
+            body.ended = cursor.index() == body.end;
+        } catch (QuitParseException q) {
+            body.statements = new StatementList(nodes, location());
+            body.statements.add(new ast.Error(nodes, location(), "Could not complete parsing.", bindings.since(0)));
+        }
+    }
+
+    private Command parseSequentially(TokenBuffer buffer) {
+        Parser parser = new Parser(buffer);
+        parser.explicitStack = explicitStack;
+        parser.maxErrors = maxErrors;
+        parser.resolveSymbols = resolveSymbols;
+        parser.setTrace(trace);
+        Command program = parser.parse();
+        errors = parser.errors;
+        parseTrace = parser.parseTrace;
+        syntaxErrorCount = parser.syntaxErrorCount;
+        resolver = parser.resolver;
+        return program;
+    }
+
+    // The syntax errors and rule events of the pre-pass and the bodies in source order
+    private final class Merge {
+        final ErrorLog errors = new ErrorLog();
+        final ParseTrace trace = Parser.this.trace ? new ParseTrace() : null;
+        int syntaxErrorCount = 0;
+        int quitLocation;
+
+        // Copies what parser reported between the marks, or up to the syntax error that reaches
+        // maxErrors and then returns false
+        boolean copy(Parser parser, int errorFrom, int errorTo, int traceFrom, int traceTo) {
+            for (int e = errorFrom; e < errorTo; e++) {
+                if (++syntaxErrorCount == maxErrors) {
+                    errors.append(parser.errors, errorFrom, e + 1);
+                    if (trace != null)
+                        trace.append(parser.parseTrace, traceFrom, parser.errors.traceSize(e));
+                    quitLocation = parser.errors.location(e);
+                    return false;
+                }
+            }
+            errors.append(parser.errors, errorFrom, errorTo);
+            if (trace != null)
+                trace.append(parser.parseTrace, traceFrom, traceTo);
+            return true;
         }
     }
 
     // Helper Methods ==========================================
     private boolean has(Token.Kind kind) {
-        return currentToken.is(kind);
+        return tokens.kind() == kind;
     }
 
     private boolean has(NonTerminal nt) {
-        return nt.firstSet().contains(currentToken.kind());
+        return nt.starts(tokens.kind());
+    }
+
+    // The alternative of a rule the current token starts, from one of the dispatch tables below
+    private int predict(byte[] table) {
+        return table[tokens.kind().ordinal()];
     }
 
     private boolean accept(Token.Kind kind) {
         if (has(kind)) {
-            currentToken = scanner.next();
+            tokens.advance();
             return true;
         }
         return false;
@@ -201,7 +508,7 @@ public class Parser {
 
     private boolean accept(NonTerminal nt) {
         if (has(nt)) {
-            currentToken = scanner.next();
+            tokens.advance();
             return true;
         }
         return false;
@@ -224,7 +531,7 @@ public class Parser {
     private int expectInteger() {
         Token integerToken = expectRetrieve(Token.Kind.INTEGER);
         try {
-            return Integer.parseInt(integerToken.lexeme());
+            return integerToken.intValue();
         } catch (NumberFormatException e) {
             String errorMessage = reportSyntaxError(Token.Kind.INTEGER);
             throw new QuitParseException(errorMessage);
@@ -232,17 +539,21 @@ public class Parser {
     }
 
     private Token expectRetrieve(Token.Kind kind) {
-        Token tok = currentToken;
-        if (accept(kind))
+        if (has(kind)) {
+            Token tok = tokens.token();
+            tokens.advance();
             return tok;
+        }
         String errorMessage = reportSyntaxError(kind);
         throw new QuitParseException(errorMessage);
     }
 
     private Token expectRetrieve(NonTerminal nt) {
-        Token tok = currentToken;
-        if (accept(nt))
+        if (has(nt)) {
+            Token tok = tokens.token();
+            tokens.advance();
             return tok;
+        }
         String errorMessage = reportSyntaxError(nt);
         throw new QuitParseException(errorMessage);
     }
@@ -254,7 +565,7 @@ public class Parser {
         enterRule(LITERAL);
 
         Token tok = expectRetrieve(LITERAL);
-        Expression expr = Command.newLiteral(tok);
+        Expression expr = Command.newLiteral(nodes, tok);
 
         exitRule(LITERAL);
         return expr;
@@ -266,17 +577,15 @@ public class Parser {
 
         Token variableToken = expectRetrieve(Token.Kind.IDENTIFIER);
 
-        Symbol variableSymbol = tryResolveSymbol(variableToken);
-        Expression returnVal = new AddressOf(variableToken.lineNumber(), variableToken.charPosition(), variableSymbol);
+        Expression returnVal = new AddressOf(nodes, variableToken.location(), referenceSymbol(variableToken), variableToken.nameId());
 
         while (accept(Token.Kind.OPEN_BRACKET)) {
-            int lineNum = currentToken.lineNumber();
-            int charPos = currentToken.charPosition();
+            int location = location();
 
             Expression index = expression0();
             expect(Token.Kind.CLOSE_BRACKET);
 
-            returnVal = new Index(lineNum, charPos, returnVal, index);
+            returnVal = new Index(nodes, location, returnVal, index);
         }
 
         exitRule(DESIGNATOR);
@@ -320,50 +629,51 @@ public class Parser {
 
     // expression0 := expression1 [ op0 expression1 ] .
     public Expression expression0() {
-        enterRule(EXPRESSION0);
-
-        Expression returnValue = expression1();
-        if (has(OP0)) {
-            Token comparisonOperator = op0();
-            Expression rightSide = expression1();
-
-            returnValue = Command.newExpression(returnValue, comparisonOperator, rightSide);
-        }
-
-        exitRule(EXPRESSION0);
-        return returnValue;
+        if (explicitStack)
+            return (Expression) runFrames(new BinaryFrame(1));
+        return binaryExpression(1);
     }
 
     // expression1 := expression2 { op1  expression2 } .
     public Expression expression1() {
-        enterRule(EXPRESSION1);
-
-        Expression returnValue = expression2();
-        while (has(OP1)) {
-            Token token = op1();
-            Expression rightSide = expression2();
-
-            returnValue = Command.newExpression(returnValue, token, rightSide);
-        }
-
-        exitRule(EXPRESSION1);
-        return returnValue;
+        return binaryExpression(2);
     }
 
     // expression2 := expression3 { op2 expression3 } .
     public Expression expression2() {
-        enterRule(EXPRESSION2);
-
-        Expression returnValue = expression3();
-        while (has(OP2)) {
-            Token operator = op2();
-            Expression rightSide = expression3();
+        return binaryExpression(3);
+    }
 
-            returnValue = Command.newExpression(returnValue, operator, rightSide);
+    // Precedence climbing over the three binary levels instead of one method per level.
+    // minPower is the loosest operator this call may take: 1 is op0, 2 is op1, 3 is op2.
+    // Operators of one level are left associative and there is at most one op0.
+    // The rule events are the ones expression0-2 would have made, so the parse tree is the same.
+    private Expression binaryExpression(int minPower) {
+        int deepest = EXPRESSION_LEVELS.length - 1;
+        for (int level = minPower - 1; level <= deepest; level++)
+            enterRule(EXPRESSION_LEVELS[level]);
+
+        Expression left = expression3();
+        int power;
+        while ((power = predict(BINDING_POWER)) >= minPower) {
+            //The operator belongs to expression(power-1), the levels below it are finished
+            for (; deepest >= power; deepest--)
+                exitRule(EXPRESSION_LEVELS[deepest]);
+
+            enterRule(OPERATOR_LEVELS[power - 1]);
+            Token operator = tokens.token();
+            tokens.advance();
+            exitRule(OPERATOR_LEVELS[power - 1]);
+
+            Expression right = binaryExpression(power + 1);
+            left = Command.newExpression(nodes, left, operator, right);
+            if (power == 1)
+                break;
         }
 
-        exitRule(EXPRESSION2);
-        return returnValue;
+        for (; deepest >= minPower - 1; deepest--)
+            exitRule(EXPRESSION_LEVELS[deepest]);
+        return left;
     }
 
     // expression3 := "not" expression3
@@ -374,23 +684,31 @@ public class Parser {
     public Expression expression3() {
         enterRule(EXPRESSION3);
 
-        int lineNum = currentToken.lineNumber();
-        int charPos = currentToken.charPosition();
+        int location = location();
         Expression returnExpression;
-        if (accept(Token.Kind.NOT)) {
-            Expression expression = expression3();
-            returnExpression = new LogicalNot(lineNum, charPos, expression);
-        } else if (accept(Token.Kind.OPEN_PAREN)) {
-            returnExpression = expression0();
-            expect(Token.Kind.CLOSE_PAREN);
-        } else if (has(DESIGNATOR))
-            returnExpression = new Dereference(lineNum, charPos, designator());
-        else if (has(CALL_EXPRESSION))
-            returnExpression = call_expression();
-        else if (has(LITERAL))
-            returnExpression = literal();
-        else
-            throw new QuitParseException(reportSyntaxError(EXPRESSION3));
+        switch (predict(EXPRESSION3_TABLE)) {
+            case 1:
+                tokens.advance();
+                Expression expression = expression3();
+                returnExpression = new LogicalNot(nodes, location, expression);
+                break;
+            case 2:
+                tokens.advance();
+                returnExpression = expression0();
+                expect(Token.Kind.CLOSE_PAREN);
+                break;
+            case 3:
+                returnExpression = new Dereference(nodes, location, designator());
+                break;
+            case 4:
+                returnExpression = call_expression();
+                break;
+            case 5:
+                returnExpression = literal();
+                break;
+            default:
+                throw new QuitParseException(reportSyntaxError(EXPRESSION3));
+        }
 
         exitRule(EXPRESSION3);
         return returnExpression;
@@ -400,26 +718,25 @@ public class Parser {
     public Call call_expression() {
         enterRule(CALL_EXPRESSION);
 
-        int lineNum = currentToken.lineNumber();
-        int charPos = currentToken.charPosition();
+        int location = location();
         expect(Token.Kind.CALL);
 
         Token functionNameToken = expectRetrieve(Token.Kind.IDENTIFIER);
-        Symbol functionNameSymbol = tryResolveSymbol(functionNameToken);
+        String functionName = referenceSymbol(functionNameToken);
 
         expect(Token.Kind.OPEN_PAREN);
         ExpressionList list = expression_list();
         expect(Token.Kind.CLOSE_PAREN);
 
         exitRule(CALL_EXPRESSION);
-        return new Call(lineNum, charPos, functionNameSymbol, list);
+        return new Call(nodes, location, functionName, functionNameToken.nameId(), functionNameToken.location(), list);
     }
 
     // expression-list := [ expression0 { "," expression0 } ] .
     public ExpressionList expression_list() {
         enterRule(EXPRESSION_LIST);
 
-        ExpressionList list = new ExpressionList(currentToken.lineNumber(), currentToken.charPosition());
+        ExpressionList list = new ExpressionList(nodes, location());
         if (has(EXPRESSION0)) {
             list.add(expression0());
             while (accept(Token.Kind.COMMA))
@@ -438,7 +755,7 @@ public class Parser {
         expect(Token.Kind.COLON);
         Type type = type();
 
-        Symbol parameter = tryDeclareSymbol(parameterName, type);
+        Symbol parameter = declareSymbol(parameterName, type);
 
         exitRule(PARAMETER);
         return parameter;
@@ -463,27 +780,25 @@ public class Parser {
     public VariableDeclaration variable_declaration() {
         enterRule(VARIABLE_DECLARATION);
 
-        int lineNumber = currentToken.lineNumber();
-        int charPos = currentToken.charPosition();
+        int location = location();
         expect(Token.Kind.VAR);
 
         Token variableName = expectRetrieve(Token.Kind.IDENTIFIER);
 
         expect(Token.Kind.COLON);
         Type type = type();
-        Symbol symbol = tryDeclareSymbol(variableName, type);
+        Symbol symbol = declareSymbol(variableName, type);
         expect(Token.Kind.SEMICOLON);
 
         exitRule(VARIABLE_DECLARATION);
-        return new VariableDeclaration(lineNumber, charPos, symbol);
+        return new VariableDeclaration(nodes, location, symbol);
     }
 
     // array-declaration := "array" IDENTIFIER ":" type "[" INTEGER "]" { "[" INTEGER "]" } ";" .
     public ArrayDeclaration array_declaration() {
         enterRule(ARRAY_DECLARATION);
 
-        int lineNumber = currentToken.lineNumber();
-        int charPos = currentToken.charPosition();
+        int location = location();
         expect(Token.Kind.ARRAY);
 
         Token arrayName = expectRetrieve(Token.Kind.IDENTIFIER);
@@ -505,21 +820,20 @@ public class Parser {
         }
         expect(Token.Kind.SEMICOLON);
 
-        ArrayType arrayType = new ArrayType(arrayLengthStack.pop(), type);
+        ArrayType arrayType = Types.array(arrayLengthStack.pop(), type);
         while (!arrayLengthStack.isEmpty())
-            arrayType = new ArrayType(arrayLengthStack.pop(), arrayType);
-        Symbol symbol = tryDeclareSymbol(arrayName, arrayType);
+            arrayType = Types.array(arrayLengthStack.pop(), arrayType);
+        Symbol symbol = declareSymbol(arrayName, arrayType);
 
         exitRule(ARRAY_DECLARATION);
-        return new ArrayDeclaration(lineNumber, charPos, symbol);
+        return new ArrayDeclaration(nodes, location, symbol);
     }
 
     // function-definition := "func" IDENTIFIER "(" parameter-list ")" ":" type statement-block .
     public FunctionDefinition function_definition() {
         enterRule(FUNCTION_DEFINITION);
 
-        int lineNumber = currentToken.lineNumber();
-        int charPos = currentToken.charPosition();
+        int location = location();
         expect(Token.Kind.FUNC);
 
         Token functionNameToken = expectRetrieve(Token.Kind.IDENTIFIER);
@@ -527,7 +841,8 @@ public class Parser {
         expect(Token.Kind.OPEN_PAREN);
 
         //We need to declare the name of the function before entering the new scope
-        Symbol functionNameSymbol = tryDeclareSymbol(functionNameToken, null);
+        Symbol functionNameSymbol = new Symbol(functionNameToken.lexeme(), functionNameToken.nameId(), null, functionNameToken.location());
+        bindings.function(functionNameSymbol);
 
         //The parameters are in the same scope as the function body, so we enter a new scope at the parameters
         enterScope();
@@ -536,19 +851,117 @@ public class Parser {
         expect(Token.Kind.CLOSE_PAREN);
         expect(Token.Kind.COLON);
         Type type = type();
-        FuncType functionType = new FuncType(buildTypeList(parameterSymbols), type);
 
-        //Set the functions type because it was already declared
-        functionNameSymbol.setType(functionType);
-        //We use false because we don't want a new symbol table to be created for this scope
-        //We already have one created that will include the parameters and the function body
-        StatementList statementBody = statement_block(false);
+        //The function's type is known now that its header is parsed
+        bindings.signature(functionNameSymbol, parameterSymbols, type);
+
+        FunctionDefinition definition;
+        int traceMark = traceSize();
+        int bodyStart = lazyBodies || bodyPool != null ? skipBody() : -1;
+        if (bodyStart >= 0) {
+            int ruleDepth = parseTreeRecursionDepth;
+            if (bodyPool != null) {
+                SkippedBody body = new SkippedBody(bodyStart, tokens.index(), ruleDepth, errors.size(), traceMark);
+                skippedBodies.add(body);
+                definition = new FunctionDefinition(nodes, location, functionNameSymbol, parameterSymbols, type, () -> body.statements);
+                body.definition = definition;
+            } else {
+                LazyBody body = new LazyBody(bodyStart, ruleDepth);
+                definition = new FunctionDefinition(nodes, location, functionNameSymbol, parameterSymbols, type, body);
+                body.definition = definition;
+            }
+        } else {
+            //We use false because we don't want a new symbol table to be created for this scope
+            //We already have one created that will include the parameters and the function body
+            StatementList statementBody = statement_block(false);
+            definition = new FunctionDefinition(nodes, location, functionNameSymbol, parameterSymbols, type, statementBody);
+        }
 
         //We exit the scope after we leave the function body
         exitScope();
 
         exitRule(FUNCTION_DEFINITION);
-        return new FunctionDefinition(lineNumber, charPos, functionNameSymbol, parameterSymbols, statementBody);
+        return definition;
+    }
+
+    // Skips a brace balanced body and returns the index of its "{", or -1 (without moving) when
+    // the body has to be parsed now: the input isn't a TokenBuffer or the braces don't balance.
+    private int skipBody() {
+        if (!(tokens instanceof TokenBuffer.Cursor) || !has(Token.Kind.OPEN_BRACE))
+            return -1;
+
+        TokenBuffer.Cursor cursor = (TokenBuffer.Cursor) tokens;
+        int start = cursor.index();
+        int braces = 0;
+        while (true) {
+            switch (cursor.kind()) {
+                case OPEN_BRACE:
+                    braces++;
+                    break;
+                case CLOSE_BRACE:
+                    if (--braces == 0) {
+                        cursor.advance();
+                        return start;
+                    }
+                    break;
+                case EOF:
+                    cursor.seek(start);
+                    return -1;
+            }
+            cursor.advance();
+        }
+    }
+
+    // A body setLazyBodies() skipped, parsed the first time it is asked for
+    private final class LazyBody implements Supplier<StatementList> {
+        final int start;
+        final int ruleDepth;
+        FunctionDefinition definition;
+
+        LazyBody(int start, int ruleDepth) {
+            this.start = start;
+            this.ruleDepth = ruleDepth;
+        }
+
+        @Override
+        public StatementList get() {
+            return parseBody(this);
+        }
+    }
+
+    // Parses and resolves a body skipBody() passed over, then goes back to where it was. Its
+    // errors go after the ones already reported.
+    private synchronized StatementList parseBody(LazyBody body) {
+        TokenBuffer.Cursor cursor = (TokenBuffer.Cursor) tokens;
+        int index = cursor.index();
+        int depth = parseTreeRecursionDepth;
+        int scope = scopeDepth;
+        int bindingMark = bindings.size();
+        ErrorLog reported = errors;
+        errors = new ErrorLog();
+
+        cursor.seek(body.start);
+        parseTreeRecursionDepth = body.ruleDepth;
+        StatementList statements;
+        ErrorLog bodyErrors;
+        try {
+            statements = statement_block(false);
+        } catch (QuitParseException q) {
+            statements = new StatementList(nodes, location());
+            statements.add(new ast.Error(nodes, location(), "Could not complete parsing.", bindings.since(bindingMark)));
+        } finally {
+            cursor.seek(index);
+            parseTreeRecursionDepth = depth;
+            scopeDepth = scope;
+            bindings.truncate(bindingMark);
+            bodyErrors = errors;
+            errors = reported;
+        }
+
+        if (resolver != null)
+            bodyErrors = ErrorLog.merge(bodyErrors, resolver.resolveBody(body.definition, statements).errors());
+        errors.append(bodyErrors);
+        return statements;
     }
 
     // declaration := variable-declaration
@@ -559,14 +972,19 @@ public class Parser {
 
         Declaration declaration;
 
-        if (has(VARIABLE_DECLARATION))
-            declaration = variable_declaration();
-        else if (has(ARRAY_DECLARATION))
-            declaration = array_declaration();
-        else if (has(FUNCTION_DEFINITION))
-            declaration = function_definition();
-        else
-            throw new QuitParseException(reportSyntaxError(DECLARATION));
+        switch (predict(DECLARATION_TABLE)) {
+            case 1:
+                declaration = variable_declaration();
+                break;
+            case 2:
+                declaration = array_declaration();
+                break;
+            case 3:
+                declaration = function_definition();
+                break;
+            default:
+                throw new QuitParseException(reportSyntaxError(DECLARATION));
+        }
 
         exitRule(DECLARATION);
         return declaration;
@@ -576,9 +994,16 @@ public class Parser {
     public DeclarationList declaration_list() {
         enterRule(DECLARATION_LIST);
 
-        DeclarationList list = new DeclarationList(currentToken.lineNumber(), currentToken.charPosition());
-        while (has(DECLARATION))
-            list.add(declaration());
+        DeclarationList list = new DeclarationList(nodes, location());
+        while (has(DECLARATION) || canRecover() && !has(Token.Kind.EOF)) {
+            int bindingMark = bindings.size();
+            Declaration declaration = declarationOrError();
+            list.add(declaration);
+
+            //The log only needs the declaration itself from now on
+            bindings.truncate(bindingMark);
+            bindings.visit((Command) declaration);
+        }
 
         exitRule(DECLARATION_LIST);
         return list;
@@ -588,8 +1013,7 @@ public class Parser {
     public Assignment assignment_statement() {
         enterRule(ASSIGNMENT_STATEMENT);
 
-        int lineNum = currentToken.lineNumber();
-        int charPos = currentToken.charPosition();
+        int location = location();
 
         expect(Token.Kind.LET);
         Expression target = designator();
@@ -598,7 +1022,7 @@ public class Parser {
         expect(Token.Kind.SEMICOLON);
 
         exitRule(ASSIGNMENT_STATEMENT);
-        return new Assignment(lineNum, charPos, target, newValue);
+        return new Assignment(nodes, location, target, newValue);
     }
 
     // call-statement := call-expression ";" .
@@ -616,49 +1040,46 @@ public class Parser {
     public IfElseBranch if_statement() {
         enterRule(IF_STATEMENT);
 
-        int lineNum = currentToken.lineNumber();
-        int charPos = currentToken.charPosition();
+        int location = location();
 
         expect(Token.Kind.IF);
         Expression conditional = expression0();
         StatementList statementBlock = statement_block(true);
-        StatementList elseBlock = new StatementList(currentToken.lineNumber(), currentToken.charPosition());
+        StatementList elseBlock = new StatementList(nodes, location());
 
         if (accept(Token.Kind.ELSE))
             elseBlock = statement_block(true);
 
         exitRule(IF_STATEMENT);
-        return new IfElseBranch(lineNum, charPos, conditional, statementBlock, elseBlock);
+        return new IfElseBranch(nodes, location, conditional, statementBlock, elseBlock);
     }
 
     // while-statement := "while" expression0 statement-block .
     public WhileLoop while_statement() {
         enterRule(WHILE_STATEMENT);
 
-        int lineNum = currentToken.lineNumber();
-        int charPos = currentToken.charPosition();
+        int location = location();
 
         expect(Token.Kind.WHILE);
         Expression conditional = expression0();
         StatementList whileBlock = statement_block(true);
 
         exitRule(WHILE_STATEMENT);
-        return new WhileLoop(lineNum, charPos, conditional, whileBlock);
+        return new WhileLoop(nodes, location, conditional, whileBlock);
     }
 
     // return-statement := "return" expression0 ";" .
     public Return return_statement() {
         enterRule(RETURN_STATEMENT);
 
-        int lineNum = currentToken.lineNumber();
-        int charPos = currentToken.charPosition();
+        int location = location();
 
         expect(Token.Kind.RETURN);
         Expression expression = expression0();
         expect(Token.Kind.SEMICOLON);
 
         exitRule(RETURN_STATEMENT);
-        return new Return(lineNum, charPos, expression);
+        return new Return(nodes, location, expression);
     }
 
     // statement := variable-declaration
@@ -671,20 +1092,28 @@ public class Parser {
         enterRule(STATEMENT);
 
         Statement statement;
-        if (has(VARIABLE_DECLARATION))
-            statement = variable_declaration();
-        else if (has(CALL_STATEMENT))
-            statement = call_statement();
-        else if (has(ASSIGNMENT_STATEMENT))
-            statement = assignment_statement();
-        else if (has(IF_STATEMENT))
-            statement = if_statement();
-        else if (has(WHILE_STATEMENT))
-            statement = while_statement();
-        else if (has(RETURN_STATEMENT))
-            statement = return_statement();
-        else
-            throw new QuitParseException(reportSyntaxError(STATEMENT));
+        switch (predict(STATEMENT_TABLE)) {
+            case 1:
+                statement = variable_declaration();
+                break;
+            case 2:
+                statement = call_statement();
+                break;
+            case 3:
+                statement = assignment_statement();
+                break;
+            case 4:
+                statement = if_statement();
+                break;
+            case 5:
+                statement = while_statement();
+                break;
+            case 6:
+                statement = return_statement();
+                break;
+            default:
+                throw new QuitParseException(reportSyntaxError(STATEMENT));
+        }
 
         exitRule(STATEMENT);
         return statement;
@@ -694,10 +1123,10 @@ public class Parser {
     public StatementList statement_list() {
         enterRule(STATEMENT_LIST);
 
-        StatementList list = new StatementList(currentToken.lineNumber(), currentToken.charPosition());
+        StatementList list = new StatementList(nodes, location());
 
         while (has(STATEMENT))
-            list.add(statement());
+            list.add(statementOrError());
 
         exitRule(STATEMENT_LIST);
         return list;
@@ -705,6 +1134,9 @@ public class Parser {
 
     // statement-block := "{" statement-list "}" .
     public StatementList statement_block(boolean newSymbolTable) {
+        if (explicitStack)
+            return (StatementList) runFrames(new BlockFrame(newSymbolTable));
+
         enterRule(STATEMENT_BLOCK);
 
         expect(Token.Kind.OPEN_BRACE);
@@ -734,4 +1166,384 @@ public class Parser {
         return list;
     }
 
+// Explicit Stack Mode ===============================================
+// The rules that can nest without limit (expressions and statement blocks) as frames.
+// Each frame is a rule in progress: step() runs it until it needs a nested rule, which it
+// returns, or until it is done, when it sets result and returns null. The nested rule's result
+// is handed back in received the next time step() is called. The rule events, symbol table
+// changes and errors happen in the same order as in the recursive methods above.
+
+    private abstract static class Frame {
+        int state = 0;
+        Object received;
+        Object result;
+
+        abstract Frame step();
+    }
+
+    private Object runFrames(Frame root) {
+        ArrayDeque<Frame> stack = new ArrayDeque<>();
+        stack.push(root);
+        Object received = null;
+        while (true) {
+            Frame frame = stack.peek();
+            frame.received = received;
+            Frame nested;
+            try {
+                nested = frame.step();
+            } catch (QuitParseException quit) {
+                //Like statementOrError: the innermost block still in its statement list takes
+                //an ast.Error in place of the statement that failed
+                stack.pop();
+                while (!stack.isEmpty() && !(stack.peek() instanceof BlockFrame))
+                    stack.pop();
+                if (stack.isEmpty())
+                    throw quit;
+                BlockFrame block = (BlockFrame) stack.peek();
+                received = recover(quit, block.scope, block.ruleDepth, block.bindingMark, false);
+                continue;
+            }
+
+            if (nested != null) {
+                stack.push(nested);
+                received = null;
+            } else {
+                stack.pop();
+                received = frame.result;
+                if (stack.isEmpty())
+                    return received;
+            }
+        }
+    }
+
+    // binaryExpression(minPower)
+    private class BinaryFrame extends Frame {
+        private final int minPower;
+        private int deepest = EXPRESSION_LEVELS.length - 1;
+        private int power;
+        private Expression left;
+        private Token operator;
+
+        BinaryFrame(int minPower) {
+            this.minPower = minPower;
+        }
+
+        @Override
+        Frame step() {
+            switch (state) {
+                case 0:
+                    for (int level = minPower - 1; level <= deepest; level++)
+                        enterRule(EXPRESSION_LEVELS[level]);
+                    state = 1;
+                    return new Expression3Frame();
+                case 1:
+                    left = (Expression) received;
+                    break;
+                default:
+                    left = Command.newExpression(nodes, left, operator, (Expression) received);
+                    if (power == 1)
+                        return finish();
+            }
+
+            if ((power = predict(BINDING_POWER)) < minPower)
+                return finish();
+
+            for (; deepest >= power; deepest--)
+                exitRule(EXPRESSION_LEVELS[deepest]);
+
+            enterRule(OPERATOR_LEVELS[power - 1]);
+            operator = tokens.token();
+            tokens.advance();
+            exitRule(OPERATOR_LEVELS[power - 1]);
+
+            state = 2;
+            return new BinaryFrame(power + 1);
+        }
+
+        private Frame finish() {
+            for (; deepest >= minPower - 1; deepest--)
+                exitRule(EXPRESSION_LEVELS[deepest]);
+            result = left;
+            return null;
+        }
+    }
+
+    // expression3()
+    private class Expression3Frame extends Frame {
+        private int location;
+
+        @Override
+        Frame step() {
+            Expression received = (Expression) this.received;
+            switch (state) {
+                case 0:
+                    enterRule(EXPRESSION3);
+                    location = location();
+                    state = predict(EXPRESSION3_TABLE);
+                    switch (state) {
+                        case 1:
+                            tokens.advance();
+                            return new Expression3Frame();
+                        case 2:
+                            tokens.advance();
+                            return new BinaryFrame(1);
+                        case 3:
+                            return new DesignatorFrame();
+                        case 4:
+                            return new CallFrame();
+                        case 5:
+                            result = literal();
+                            break;
+                        default:
+                            throw new QuitParseException(reportSyntaxError(EXPRESSION3));
+                    }
+                    break;
+                case 1:
+                    result = new LogicalNot(nodes, location, received);
+                    break;
+                case 2:
+                    expect(Token.Kind.CLOSE_PAREN);
+                    result = received;
+                    break;
+                case 3:
+                    result = new Dereference(nodes, location, received);
+                    break;
+                default:
+                    result = received;
+            }
+
+            exitRule(EXPRESSION3);
+            return null;
+        }
+    }
+
+    // designator()
+    private class DesignatorFrame extends Frame {
+        private Expression designator;
+        private int location;
+
+        @Override
+        Frame step() {
+            if (state == 0) {
+                enterRule(DESIGNATOR);
+
+                Token variableToken = expectRetrieve(Token.Kind.IDENTIFIER);
+                designator = new AddressOf(nodes, variableToken.location(), referenceSymbol(variableToken), variableToken.nameId());
+                state = 1;
+            } else {
+                expect(Token.Kind.CLOSE_BRACKET);
+                designator = new Index(nodes, location, designator, (Expression) received);
+            }
+
+            if (accept(Token.Kind.OPEN_BRACKET)) {
+                location = location();
+                return new BinaryFrame(1);
+            }
+
+            exitRule(DESIGNATOR);
+            result = designator;
+            return null;
+        }
+    }
+
+    // call_expression() with its expression_list()
+    private class CallFrame extends Frame {
+        private int location;
+        private String function;
+        private int functionId;
+        private int functionLocation;
+        private ExpressionList arguments;
+
+        @Override
+        Frame step() {
+            if (state == 0) {
+                enterRule(CALL_EXPRESSION);
+
+                location = location();
+                expect(Token.Kind.CALL);
+
+                Token functionNameToken = expectRetrieve(Token.Kind.IDENTIFIER);
+                function = referenceSymbol(functionNameToken);
+                functionId = functionNameToken.nameId();
+                functionLocation = functionNameToken.location();
+
+                expect(Token.Kind.OPEN_PAREN);
+                enterRule(EXPRESSION_LIST);
+                arguments = new ExpressionList(nodes, location());
+                state = 1;
+                if (has(EXPRESSION0))
+                    return new BinaryFrame(1);
+            } else {
+                arguments.add((Expression) received);
+                if (accept(Token.Kind.COMMA))
+                    return new BinaryFrame(1);
+            }
+
+            exitRule(EXPRESSION_LIST);
+            expect(Token.Kind.CLOSE_PAREN);
+
+            exitRule(CALL_EXPRESSION);
+            result = new Call(nodes, location, function, functionId, functionLocation, arguments);
+            return null;
+        }
+    }
+
+    // statement_block(newSymbolTable) with its statement_list()
+    private class BlockFrame extends Frame {
+        private final boolean newSymbolTable;
+        private StatementList statements;
+        private int scope;
+        private int ruleDepth;
+        private int bindingMark;
+
+        BlockFrame(boolean newSymbolTable) {
+            this.newSymbolTable = newSymbolTable;
+        }
+
+        @Override
+        Frame step() {
+            if (state == 0) {
+                enterRule(STATEMENT_BLOCK);
+
+                expect(Token.Kind.OPEN_BRACE);
+
+                if (newSymbolTable)
+                    enterScope();
+
+                enterRule(STATEMENT_LIST);
+                statements = new StatementList(nodes, location());
+                scope = scopeDepth;
+                ruleDepth = parseTreeRecursionDepth;
+                state = 1;
+            } else {
+                statements.add((Statement) received);
+            }
+
+            if (has(STATEMENT)) {
+                bindingMark = bindings.size();
+                return new StatementFrame();
+            }
+
+            exitRule(STATEMENT_LIST);
+
+            if (newSymbolTable)
+                exitScope();
+
+            expect(Token.Kind.CLOSE_BRACE);
+
+            exitRule(STATEMENT_BLOCK);
+            result = statements;
+            return null;
+        }
+    }
+
+    // statement() and the statement it starts
+    private class StatementFrame extends Frame {
+        private static final int CALL = 1;
+        private static final int ASSIGNMENT_TARGET = 2;
+        private static final int ASSIGNMENT_VALUE = 3;
+        private static final int IF_CONDITION = 4;
+        private static final int IF_THEN = 5;
+        private static final int IF_ELSE = 6;
+        private static final int WHILE_CONDITION = 7;
+        private static final int WHILE_BODY = 8;
+        private static final int RETURN_VALUE = 9;
+
+        private int location;
+        private Expression expression;
+        private StatementList thenBlock;
+
+        @Override
+        Frame step() {
+            switch (state) {
+                case 0:
+                    enterRule(STATEMENT);
+                    switch (predict(STATEMENT_TABLE)) {
+                        case 1:
+                            result = variable_declaration();
+                            break;
+                        case 2:
+                            enterRule(CALL_STATEMENT);
+                            state = CALL;
+                            return new CallFrame();
+                        case 3:
+                            enterRule(ASSIGNMENT_STATEMENT);
+                            location = location();
+                            expect(Token.Kind.LET);
+                            state = ASSIGNMENT_TARGET;
+                            return new DesignatorFrame();
+                        case 4:
+                            enterRule(IF_STATEMENT);
+                            location = location();
+                            expect(Token.Kind.IF);
+                            state = IF_CONDITION;
+                            return new BinaryFrame(1);
+                        case 5:
+                            enterRule(WHILE_STATEMENT);
+                            location = location();
+                            expect(Token.Kind.WHILE);
+                            state = WHILE_CONDITION;
+                            return new BinaryFrame(1);
+                        case 6:
+                            enterRule(RETURN_STATEMENT);
+                            location = location();
+                            expect(Token.Kind.RETURN);
+                            state = RETURN_VALUE;
+                            return new BinaryFrame(1);
+                        default:
+                            throw new QuitParseException(reportSyntaxError(STATEMENT));
+                    }
+                    break;
+                case CALL:
+                    expect(Token.Kind.SEMICOLON);
+                    exitRule(CALL_STATEMENT);
+                    result = received;
+                    break;
+                case ASSIGNMENT_TARGET:
+                    expression = (Expression) received;
+                    expect(Token.Kind.ASSIGN);
+                    state = ASSIGNMENT_VALUE;
+                    return new BinaryFrame(1);
+                case ASSIGNMENT_VALUE:
+                    expect(Token.Kind.SEMICOLON);
+                    exitRule(ASSIGNMENT_STATEMENT);
+                    result = new Assignment(nodes, location, expression, (Expression) received);
+                    break;
+                case IF_CONDITION:
+                    expression = (Expression) received;
+                    state = IF_THEN;
+                    return new BlockFrame(true);
+                case IF_THEN:
+                    thenBlock = (StatementList) received;
+                    StatementList elseBlock = new StatementList(nodes, location());
+                    if (accept(Token.Kind.ELSE)) {
+                        state = IF_ELSE;
+                        return new BlockFrame(true);
+                    }
+                    exitRule(IF_STATEMENT);
+                    result = new IfElseBranch(nodes, location, expression, thenBlock, elseBlock);
+                    break;
+                case IF_ELSE:
+                    exitRule(IF_STATEMENT);
+                    result = new IfElseBranch(nodes, location, expression, thenBlock, (StatementList) received);
+                    break;
+                case WHILE_CONDITION:
+                    expression = (Expression) received;
+                    state = WHILE_BODY;
+                    return new BlockFrame(true);
+                case WHILE_BODY:
+                    exitRule(WHILE_STATEMENT);
+                    result = new WhileLoop(nodes, location, expression, (StatementList) received);
+                    break;
+                case RETURN_VALUE:
+                    expect(Token.Kind.SEMICOLON);
+                    exitRule(RETURN_STATEMENT);
+                    result = new Return(nodes, location, (Expression) received);
+                    break;
+            }
+
+            exitRule(STATEMENT);
+            return null;
+        }
+    }
 }
@@ -0,0 +1,378 @@
+package crux;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import ast.*;
+import ast.Error;
+import types.*;
+
+// Binds the names in a tree from the Parser to their Symbols. Declarations are put in the scopes
+// they are in, every AddressOf and Call gets the symbol its name refers to, and names that were
+// never declared or were declared twice are reported along with the scopes at that point.
+// The Parser runs one after parsing, but it needs nothing from the parse, so it can also be run
+// on its own, for example again after an edit, and can resolve function bodies in parallel.
+public class Resolver implements CommandVisitor {
+
+    private FlatSymbolTable symbolTable;
+    private ErrorLog errors = new ErrorLog();
+    //The source of the tree being resolved, its locations are offsets into it
+    private Source source;
+
+    private final boolean explicitStack;
+    private final Traversal traversal;
+
+    //The scope of every body that is resolved later: in parallel, or when it gets parsed
+    private ForkJoinPool bodyPool;
+    boolean lazyBodies = false;
+    private final IdentityHashMap<FunctionDefinition, FlatSymbolTable> bodyScopes = new IdentityHashMap<>();
+    private final List<FunctionDefinition> pendingBodies = new ArrayList<>();
+
+    // names has to be the Interner the names in the tree were given their IDs by
+    public Resolver(Interner names) {
+        this(names, false);
+    }
+
+    // With explicitStack the tree is walked with a work stack on the heap instead of recursion
+    public Resolver(Interner names, boolean explicitStack) {
+        this(globalScope(names), explicitStack);
+    }
+
+    private Resolver(FlatSymbolTable scope, boolean explicitStack) {
+        this.symbolTable = scope;
+        this.explicitStack = explicitStack;
+        this.traversal = new Traversal(this, explicitStack);
+    }
+
+    private static FlatSymbolTable globalScope(Interner names) {
+        FlatSymbolTable symbolTable = new FlatSymbolTable(names);
+
+        symbolTable.insert("readInt", Types.func(Types.NO_TYPES, Types.INT));
+        symbolTable.insert("readFloat", Types.func(Types.NO_TYPES, Types.FLOAT));
+
+        symbolTable.insert("printBool", Types.func(Types.list(Types.BOOL), Types.VOID));
+        symbolTable.insert("printInt", Types.func(Types.list(Types.INT), Types.VOID));
+        symbolTable.insert("printFloat", Types.func(Types.list(Types.FLOAT), Types.VOID));
+
+        symbolTable.insert("println", Types.func(Types.NO_TYPES, Types.VOID));
+        return symbolTable;
+    }
+
+    // Resolves the function bodies at the same time on pool once the globals are all declared.
+    // Each body sees the globals as they were at its function.
+    public void setParallelBodies(ForkJoinPool pool) {
+        this.bodyPool = pool;
+    }
+
+    public boolean resolve(Command tree) {
+        source = tree.nodes().source();
+        tree.accept(this);
+
+        List<ForkJoinTask<Resolver>> tasks = new ArrayList<>(pendingBodies.size());
+        for (FunctionDefinition node : pendingBodies)
+            tasks.add(bodyPool.submit(() -> resolveBody(node, node.body())));
+        for (ForkJoinTask<Resolver> task : tasks)
+            errors = ErrorLog.merge(errors, task.join().errors);
+        pendingBodies.clear();
+
+        return !hasError();
+    }
+
+    // Resolves a body that was left for later, in the scope its function had. The errors are
+    // in the returned Resolver.
+    Resolver resolveBody(FunctionDefinition node, StatementList body) {
+        Resolver resolver = new Resolver(bodyScopes.get(node), explicitStack);
+        resolver.source = node.nodes().source();
+        body.accept(resolver);
+        return resolver;
+    }
+
+    public ErrorLog errors() {
+        return errors;
+    }
+
+    public boolean hasError() {
+        return !errors.isEmpty();
+    }
+
+    public String errorReport() {
+        return errors.toString();
+    }
+
+    private void enterScope() {
+        symbolTable.enterScope();
+    }
+
+    private void exitScope() {
+        symbolTable.exitScope();
+    }
+
+    private Symbol lookup(int id, int location) {
+        try {
+            return symbolTable.lookup(id);
+        } catch (SymbolNotFoundError e) {
+            return unresolved(e.name(), location);
+        }
+    }
+
+    private Symbol lookup(String name, int location) {
+        try {
+            return symbolTable.lookup(name);
+        } catch (SymbolNotFoundError e) {
+            return unresolved(name, location);
+        }
+    }
+
+    private Symbol unresolved(String name, int location) {
+        Diagnostic diagnostic = Diagnostic.unresolvedSymbol(source, location, name, symbolTable.scopes());
+        errors.add(diagnostic);
+        return new ErrorSymbol(diagnostic.message());
+    }
+
+    private Symbol declare(Symbol symbol) {
+        return declare(symbol, false);
+    }
+
+    // A function is declared before its type is known, the parameters are declared first
+    private Symbol declareFunction(Symbol function) {
+        return declare(function, true);
+    }
+
+    private Symbol declare(Symbol symbol, boolean untyped) {
+        //Resolving a tree again, the symbol may be standing in for the one that failed last time
+        if (symbol instanceof ErrorSymbol && ((ErrorSymbol) symbol).declared() != null)
+            symbol = ((ErrorSymbol) symbol).declared();
+
+        try {
+            return untyped ? symbolTable.insertUntyped(symbol) : symbolTable.insert(symbol);
+        } catch (RedeclarationError e) {
+            Diagnostic diagnostic = Diagnostic.redeclaredSymbol(source, symbol.location(), symbol.name(), symbolTable.scopes());
+            errors.add(diagnostic);
+            return new ErrorSymbol(diagnostic.message(), symbol);
+        }
+    }
+
+    @Override
+    public void visit(ExpressionList node) {
+        for (Expression argument : node)
+            traversal.walk(argument);
+    }
+
+    @Override
+    public void visit(DeclarationList node) {
+        for (Declaration declaration : node)
+            traversal.walk(declaration);
+    }
+
+    @Override
+    public void visit(StatementList node) {
+        for (Statement statement : node)
+            traversal.walk(statement);
+    }
+
+    @Override
+    public void visit(AddressOf node) {
+        node.setSymbol(lookup(node.nameId(), node.location()));
+    }
+
+    @Override
+    public void visit(LiteralBool node) {
+    }
+
+    @Override
+    public void visit(LiteralFloat node) {
+    }
+
+    @Override
+    public void visit(LiteralInt node) {
+    }
+
+    @Override
+    public void visit(VariableDeclaration node) {
+        node.setSymbol(declare(node.symbol()));
+    }
+
+    @Override
+    public void visit(ArrayDeclaration node) {
+        node.setSymbol(declare(node.symbol()));
+    }
+
+    @Override
+    public void visit(FunctionDefinition node) {
+        Symbol function = declareFunction(node.function());
+        node.setFunction(function);
+
+        //The parameters are in the same scope as the body
+        enterScope();
+        Type[] parameterTypes = new Type[node.arguments().size()];
+        for (int i = 0; i < node.arguments().size(); i++) {
+            Symbol parameter = declare(node.arguments().get(i));
+            node.setArgument(i, parameter);
+            parameterTypes[i] = parameter.type();
+        }
+        symbolTable.setType(function, Types.func(Types.list(parameterTypes), node.returnType()));
+
+        boolean parsed = node.hasParsedBody() || !lazyBodies;
+        if (parsed && bodyPool == null) {
+            traversal.walk(node.body());
+            traversal.then(this::exitScope);
+            return;
+        }
+
+        //The body can only see the globals declared before it, whenever it gets resolved
+        bodyScopes.put(node, symbolTable.detach());
+        if (parsed)
+            pendingBodies.add(node);
+        exitScope();
+    }
+
+    @Override
+    public void visit(Addition node) {
+        traversal.walk(node.leftSide());
+        traversal.walk(node.rightSide());
+    }
+
+    @Override
+    public void visit(Subtraction node) {
+        traversal.walk(node.leftSide());
+        traversal.walk(node.rightSide());
+    }
+
+    @Override
+    public void visit(Multiplication node) {
+        traversal.walk(node.leftSide());
+        traversal.walk(node.rightSide());
+    }
+
+    @Override
+    public void visit(Division node) {
+        traversal.walk(node.leftSide());
+        traversal.walk(node.rightSide());
+    }
+
+    @Override
+    public void visit(LogicalAnd node) {
+        traversal.walk(node.leftSide());
+        traversal.walk(node.rightSide());
+    }
+
+    @Override
+    public void visit(LogicalOr node) {
+        traversal.walk(node.leftSide());
+        traversal.walk(node.rightSide());
+    }
+
+    @Override
+    public void visit(LogicalNot node) {
+        traversal.walk(node.expression());
+    }
+
+    @Override
+    public void visit(Comparison node) {
+        traversal.walk(node.leftSide());
+        traversal.walk(node.rightSide());
+    }
+
+    @Override
+    public void visit(Dereference node) {
+        traversal.walk(node.expression());
+    }
+
+    @Override
+    public void visit(Index node) {
+        traversal.walk(node.base());
+        traversal.walk(node.amount());
+    }
+
+    @Override
+    public void visit(Assignment node) {
+        traversal.walk(node.destination());
+        traversal.walk(node.source());
+    }
+
+    @Override
+    public void visit(Call node) {
+        node.setFunction(lookup(node.nameId(), node.nameLocation()));
+        traversal.walk(node.arguments());
+    }
+
+    @Override
+    public void visit(IfElseBranch node) {
+        traversal.walk(node.condition());
+        block(node.thenBlock());
+        block(node.elseBlock());
+    }
+
+    @Override
+    public void visit(WhileLoop node) {
+        traversal.walk(node.condition());
+        block(node.body());
+    }
+
+    // A block in a scope of its own
+    private void block(StatementList block) {
+        traversal.then(this::enterScope);
+        traversal.walk(block);
+        traversal.then(this::exitScope);
+    }
+
+    @Override
+    public void visit(Return node) {
+        traversal.walk(node.argument());
+    }
+
+    // Goes through the bindings of whatever the error replaced, then puts the scope back like
+    // the parser did when it recovered
+    @Override
+    public void visit(Error node) {
+        BindingLog bindings = node.bindings();
+        if (bindings == null)
+            return;
+
+        int depth = symbolTable.getDepth();
+        IdentityHashMap<Symbol, Symbol> declared = new IdentityHashMap<>();
+        for (int i = 0; i < bindings.size(); i++) {
+            int binding = i;
+            if (bindings.kind(binding) == BindingLog.VISIT)
+                traversal.walk((Command) bindings.value(binding));
+            else
+                traversal.then(() -> replay(bindings, binding, declared));
+        }
+        traversal.then(() -> {
+            while (symbolTable.getDepth() > depth)
+                exitScope();
+        });
+    }
+
+    private void replay(BindingLog bindings, int binding, IdentityHashMap<Symbol, Symbol> declared) {
+        Object value = bindings.value(binding);
+        switch (bindings.kind(binding)) {
+            case BindingLog.ENTER:
+                enterScope();
+                break;
+            case BindingLog.EXIT:
+                exitScope();
+                break;
+            case BindingLog.DECLARE:
+                declared.put((Symbol) value, declare((Symbol) value));
+                break;
+            case BindingLog.FUNCTION:
+                declared.put((Symbol) value, declareFunction((Symbol) value));
+                break;
+            case BindingLog.SIGNATURE: {
+                Object[] signature = (Object[]) value;
+                TypeList parameterTypes = Types.NO_TYPES;
+                for (Object parameter : (List<?>) signature[1])
+                    parameterTypes = parameterTypes.append(declared.getOrDefault(parameter, (Symbol) parameter).type());
+                symbolTable.setType(declared.getOrDefault(signature[0], (Symbol) signature[0]), Types.func(parameterTypes, (Type) signature[2]));
+                break;
+            }
+            case BindingLog.REFERENCE:
+                lookup((String) value, bindings.location(binding));
+                break;
+        }
+    }
+}
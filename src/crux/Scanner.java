@@ -1,4 +1,5 @@
 package crux;
+import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.Iterator;
@@ -8,173 +9,308 @@ public class Scanner implements Iterable<Token> {
 	public static String studentID = "TODO: Your 8-digit id";
 	public static String uciNetID = "TODO: uci-net id";
 	
-	private int lineNum;  // current line count
-	private int charPos;  // character offset for current line
 	private int nextChar; // contains the next char (-1 == EOF)
-	private Reader input;
+	private Source source;
+	private int position; // index of nextChar in the source
+	private int end;      // the scanner stops here, normally the end of the source
+	private Skipper skipper;
+	
+	// The token found by the last call to scan(). next() turns it into a Token object,
+	// TokenBuffer copies it straight into its arrays.
+	Token.Kind tokenKind;
+	int tokenStart;
+	int tokenLength;
+	int tokenValue; // value of an INTEGER or bits of a FLOAT, see Token.intValue
+	String tokenError;
+	
+	// Powers of ten that a float holds exactly
+	private static final float[] FLOAT_POWERS_OF_TEN = {
+		1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+	};
+	private static final int FLOAT_MAX_EXACT_INT = 1 << 24;
+	
+	// How a source file is brought into memory before it is scanned
+	public enum Input {
+		BUFFERED, // read the whole file into one array
+		MAPPED    // memory map the file (single byte encodings only)
+	}
+	
+	public static Scanner open(String filename, Input mode) throws IOException
+	{
+		File file = new File(filename);
+		if (mode == Input.MAPPED)
+			return new Scanner(Source.mapFile(file));
+		return new Scanner(Source.readFile(file));
+	}
 	
 	public Scanner(Reader reader)
 	{
-		lineNum = 1;
-		charPos = 0;
-		input = reader;
+		this(Source.read(reader));
+	}
+	
+	public Scanner(Source source)
+	{
+		this(source, 0, source.length());
+	}
+	
+	// Scans only source[start, end), start must not be inside a token or a comment.
+	// Token positions are still offsets into the whole source.
+	Scanner(Source source, int start, int end)
+	{
+		this(source, start, end, Skipper.INSTANCE);
+	}
+	
+	Scanner(Source source, int start, int end, Skipper skipper)
+	{
+		this.source = source;
+		this.end = end;
+		this.skipper = skipper;
+		position = start - 1;
 		nextChar = readChar();
 	}
 
 	public Token next()
 	{
-		Token tok = nextImpl();
+		scan();
+		Token tok;
+		switch (tokenKind) {
+		case IDENTIFIER:
+			tok = Token.Identifier(source, tokenStart, tokenLength);
+			break;
+		case INTEGER:
+			tok = Token.Integer(source, tokenStart, tokenLength, tokenValue);
+			break;
+		case FLOAT:
+			tok = Token.Float(source, tokenStart, tokenLength, tokenValue);
+			break;
+		case ERROR:
+			tok = Token.Error(tokenError, source, tokenStart);
+			break;
+		case EOF:
+			tok = Token.EOF(source, tokenStart);
+			break;
+		default:
+			tok = Token.Static(tokenKind, source, tokenStart);
+		}
 		//System.out.println("Scanner returning: " + tok);
 		return tok;
 	}
 	
+	Source source()
+	{
+		return source;
+	}
+	
 	private int readChar()
 	{
-		int c = -1;
-		try {
-			c = input.read();
-			charPos++;
-		} catch (IOException e) {
-			//e.printStackTrace();
-		}
+		if (position + 1 < end)
+			return source.charAt(++position);
+		position = end;
+		return -1;
+	}
 		
-		if (-1 == c) {
-			try {
-				input.close();
-			} catch (IOException e) {
-			}
+	// Moves straight to the char at index, as if readChar had been called until it was reached
+	private void advanceTo(int index)
+	{
+		if (index < end) {
+			position = index;
+			nextChar = source.charAt(index);
+		} else {
+			position = end;
+			nextChar = -1;
 		}
-		
-		return c;
 	}
-		
+	
 	private boolean atEOF()
 	{
 		return -1 == nextChar;
 	}
 	
+	private Token.Kind found(Token.Kind kind, int start)
+	{
+		tokenKind = kind;
+		tokenStart = start;
+		tokenLength = position - start;
+		return kind;
+	}
+	
+	private Token.Kind error(String message, int start)
+	{
+		tokenError = message;
+		return found(Token.Kind.ERROR, start);
+	}
+	
 	/* Invariants:
 	 *  - readOne is called always once before return, nextChar not inspected afterward
 	 */
-	private Token nextImpl()
+	Token.Kind scan()
 	{
-		while (Character.isWhitespace(nextChar)) {
-			if ('\n' == nextChar) {
-				lineNum++;
-				charPos = 0;
+		while (true) {
+			byte type = LexerTables.classOf(nextChar);
+			while (type == LexerTables.WHITESPACE || type == LexerTables.NEWLINE) {
+				if (type == LexerTables.NEWLINE)
+					nextChar = readChar();
+				else
+					advanceTo(skipper.skipBlanks(source, position + 1, end));
+				type = LexerTables.classOf(nextChar);
+			}
+			
+			int start = position;
+			
+			switch (type) {
+			case LexerTables.END:
+				return found(Token.Kind.EOF, start);
+			case LexerTables.DIGIT:
+				return number(start);
+			case LexerTables.LETTER:
+				return identifier(start);
+			case LexerTables.PUNCTUATION:
+				Token.Kind kind = punctuation(start);
+				if (kind != null)
+					return kind;
+				break; // it was a comment, keep going on the next line
+			default:
+				String c = Character.toString((char)nextChar);
+				nextChar = readChar();
+				return error("Unexpected character: "+c, start);
 			}
+		}
+	}
+	
+	// Runs the punctuation DFA for as long as it has a transition (longest match).
+	// Returns null after skipping a comment.
+	private Token.Kind punctuation(int start)
+	{
+		int state = LexerTables.START;
+		int next;
+		while ((next = LexerTables.transition(state, nextChar)) != LexerTables.NONE) {
+			state = next;
 			nextChar = readChar();
 		}
 		
-		if (atEOF())
-			return Token.EOF(lineNum, charPos);
-		
-		int pos = charPos;
+		if (state == LexerTables.COMMENT) {
+			if (!atEOF())
+				advanceTo(skipper.findNewline(source, position, end));
+			return null;
+		}
 		
-		if (nextChar == '/') {
+		Token.Kind kind = LexerTables.accepting(state);
+		if (kind == null)
+			return error("Unexpected character: "+nextChar, start);
+		return found(kind, start);
+	}
+	
+	// The value is worked out while the digits are read. When it can't be done exactly
+	// (an int that overflows, a float with too many digits) it is left UNDECODED and
+	// the Token parses its lexeme the way the parser used to.
+	private Token.Kind number(int start)
+	{
+		long mantissa = 0;
+		while (LexerTables.classOf(nextChar) == LexerTables.DIGIT) {
+			mantissa = accumulate(mantissa, nextChar);
 			nextChar = readChar();
-			if (nextChar == '/') {
-				while ((nextChar = readChar()) != '\n') {}
-				return next();
-			}
-			return new Token("/", lineNum, pos);
 		}
 		
-		else if (nextChar == '=') {
+		if (nextChar == '.') {
 			nextChar = readChar();
-			if (nextChar == '=') {
+			int scale = 0;
+			while (LexerTables.classOf(nextChar) == LexerTables.DIGIT) {
+				mantissa = accumulate(mantissa, nextChar);
+				scale++;
 				nextChar = readChar();
-				return new Token("==", lineNum, pos);
 			}
-			return new Token("=", lineNum, pos);
+			
+			// Both operands are exact floats, so the one division is correctly rounded
+			if (mantissa >= 0 && mantissa <= FLOAT_MAX_EXACT_INT && scale < FLOAT_POWERS_OF_TEN.length)
+				tokenValue = Float.floatToRawIntBits(mantissa / FLOAT_POWERS_OF_TEN[scale]);
+			else
+				tokenValue = Token.UNDECODED;
+			return found(Token.Kind.FLOAT, start);
 		}
 		
-		else if (nextChar == '<') {
+		tokenValue = mantissa >= 0 ? (int) mantissa : Token.UNDECODED;
+		return found(Token.Kind.INTEGER, start);
+	}
+	
+	// Adds one more digit to the mantissa, -1 once it no longer fits in an int (or for a non-ASCII digit)
+	private static long accumulate(long mantissa, int c)
+	{
+		if (mantissa < 0 || c >= 128)
+			return -1;
+		mantissa = mantissa * 10 + (c - '0');
+		return mantissa <= Integer.MAX_VALUE ? mantissa : -1;
+	}
+	
+	private Token.Kind identifier(int start)
+	{
+		while (LexerTables.isIdentifierPart(nextChar))
 			nextChar = readChar();
-			if (nextChar == '=') {
-				nextChar = readChar();
-				return new Token("<=", lineNum, pos);
-			}
-			return new Token("<", lineNum, pos);
+		
+		Token.Kind keyword = LexerTables.keyword(source, start, position - start);
+		if (keyword != null)
+			return found(keyword, start);
+		
+		return found(Token.Kind.IDENTIFIER, start);
+	}
+
+	TokenCursor cursor()
+	{
+		return new ScannerCursor(this);
+	}
+	
+	// Cursor that holds the current token and asks the scanner for the next one when it moves
+	private static class ScannerCursor implements TokenCursor
+	{
+		private Scanner scanner;
+		private Token current;
+		private int index = 0;
+		
+		ScannerCursor(Scanner scanner) {
+			this.scanner = scanner;
+			this.current = scanner.next();
 		}
 		
-		else if (nextChar == '>') {
-			nextChar = readChar();
-			if (nextChar == '=') {
-				nextChar = readChar();
-				return new Token(">=", lineNum, pos);
-			}
-			return new Token(">", lineNum, pos);
+		@Override
+		public Token.Kind kind() {
+			return current.kind();
 		}
 		
-		else if (nextChar == ':') {
-			nextChar = readChar();
-			if (nextChar == ':') {
-				nextChar = readChar();
-				return new Token("::", lineNum, pos);
-			}
-			return new Token(":", lineNum, pos);
+		@Override
+		public int offset() {
+			return current.offset();
 		}
 		
-		else if (nextChar == '!') {
-			nextChar = readChar();
-			if (nextChar == '=') {
-				nextChar = readChar();
-				return new Token("!=", lineNum, pos);
-			}
-			return Token.Error("Unexpected character: "+nextChar, lineNum, pos);
+		@Override
+		public Source source() {
+			return scanner.source;
 		}
-			
-		else if (Character.isDigit(nextChar))
-		{
-			String num = "";
-			
-			while (Character.isDigit(nextChar)) {
-				num += (char)nextChar;
-				nextChar = readChar();
-			}
-			
-			if (nextChar == '.') {
-				num += (char)nextChar;
-				nextChar = readChar();
-				while (Character.isDigit(nextChar)) {
-					num += (char)nextChar;
-					nextChar = readChar();
-				}
-				return Token.Float(num, lineNum, pos);
-			}
-			
-			return Token.Integer(num, lineNum, pos);
+		
+		@Override
+		public int lineNumber() {
+			return current.lineNumber();
 		}
 		
-		else if (Character.isLetter(nextChar) || nextChar == '_') {
-			String ident = "";
-			
-			while (Character.isLetterOrDigit(nextChar) || nextChar == '_') {
-				ident += (char)nextChar;
-				nextChar = readChar();
-			}
-			
-			for (Token.Kind t : Token.Kind.values()) {
-				if (t.matches(ident))
-					return new Token(ident, lineNum, pos);
-			}
-			
-			return Token.Identifier(ident, lineNum, pos);
+		@Override
+		public int charPosition() {
+			return current.charPosition();
 		}
 		
-		else {
-			String c = Character.toString((char)nextChar);
-			
-			for (Token.Kind t : Token.Kind.values()) {
-				if (t.matches(c)) {
-					nextChar = readChar();
-					return new Token(c, lineNum, pos);
-				}
-			}
-			
-			nextChar = readChar();
-			return Token.Error("Unexpected character: "+c, lineNum, pos);
+		@Override
+		public int index() {
+			return index;
+		}
+		
+		@Override
+		public Token token() {
+			return current;
+		}
+		
+		@Override
+		public void advance() {
+			//The scanner keeps handing out EOF at the end, which is still the same token
+			if (!current.is(Token.Kind.EOF))
+				index++;
+			current = scanner.next();
 		}
 	}
 
@@ -0,0 +1,38 @@
+package crux;
+
+// Finds the end of runs of blanks and comments for the Scanner.
+// This is the scalar version that looks at one character at a time. When the
+// jdk.incubator.vector module is available INSTANCE is a VectorSkipper instead,
+// which checks a whole vector of characters per step. VectorSkipper is in vector/ and
+// only loaded by name, a build without it always uses this one.
+class Skipper {
+
+    static final Skipper INSTANCE = create();
+
+    private static Skipper create() {
+        if (Boolean.parseBoolean(System.getProperty("crux.vector", "true"))
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (Skipper) Class.forName("crux.VectorSkipper").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                //Fall back to the scalar version
+            }
+        }
+        return new Skipper();
+    }
+
+    // Returns the index of the first character at or after from that is not a blank
+    // (whitespace other than a newline), or end if there is none
+    int skipBlanks(Source source, int from, int end) {
+        while (from < end && LexerTables.classOf(source.charAt(from)) == LexerTables.WHITESPACE)
+            from++;
+        return from;
+    }
+
+    // Returns the index of the first newline at or after from, or end if there is none
+    int findNewline(Source source, int from, int end) {
+        while (from < end && source.charAt(from) != '\n')
+            from++;
+        return from;
+    }
+}
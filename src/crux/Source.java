@@ -0,0 +1,197 @@
+package crux;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// The complete text of a crux source file held in memory so the Scanner can read it by index.
+// The text is either a char array (decoded with the platform charset, like FileReader does)
+// or the raw bytes of a memory mapped file, which are read one byte per character.
+public final class Source {
+
+    private static final int READ_CHUNK = 64 * 1024;
+
+    private final char[] chars;
+    private final ByteBuffer bytes;
+    private final int length;
+
+    //Offset of the first char of every line, built the first time a position is turned into a line
+    private volatile int[] lineStarts;
+
+    //The IDs of the identifiers, shared with the other sources of the compilation
+    private Interner interner = new ConcurrentNameTable();
+
+    private Source(char[] chars, int length) {
+        this.chars = chars;
+        this.bytes = null;
+        this.length = length;
+    }
+
+    private Source(ByteBuffer bytes) {
+        this.chars = null;
+        this.bytes = bytes;
+        this.length = bytes.limit();
+    }
+
+    public static Source of(String text) {
+        return new Source(text.toCharArray(), text.length());
+    }
+
+    // Drains the reader into a single array using bulk reads and closes it.
+    // An IOException ends the source at the last character that was successfully read,
+    // which is the same thing the Scanner used to do when a single read failed.
+    public static Source read(Reader reader) {
+        char[] buffer = new char[READ_CHUNK];
+        int length = 0;
+        try {
+            int count;
+            while ((count = reader.read(buffer, length, buffer.length - length)) != -1) {
+                length += count;
+                if (length == buffer.length) {
+                    char[] grown = new char[buffer.length * 2];
+                    System.arraycopy(buffer, 0, grown, 0, length);
+                    buffer = grown;
+                }
+            }
+        } catch (IOException e) {
+            //e.printStackTrace();
+        }
+
+        try {
+            reader.close();
+        } catch (IOException e) {
+        }
+
+        return new Source(buffer, length);
+    }
+
+    // Reads the whole file into one array, decoding it with the platform charset.
+    public static Source readFile(File file) throws IOException {
+        byte[] content = Files.readAllBytes(file.toPath());
+        CharBuffer decoded = Charset.defaultCharset().decode(ByteBuffer.wrap(content));
+        if (decoded.hasArray() && decoded.arrayOffset() == 0)
+            return new Source(decoded.array(), decoded.remaining());
+
+        char[] chars = new char[decoded.remaining()];
+        decoded.get(chars);
+        return new Source(chars, chars.length);
+    }
+
+    // Memory maps the file. Every byte is one character, so this only gives the same
+    // result as readFile for single byte encodings (all crux programs are plain ASCII).
+    public static Source mapFile(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new Source(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int length() {
+        return length;
+    }
+
+    // Direct access to the storage for the vectorized paths, exactly one of these is non-null
+    char[] charArray() {
+        return chars;
+    }
+
+    ByteBuffer byteBuffer() {
+        return bytes;
+    }
+
+    public int charAt(int index) {
+        if (chars != null)
+            return chars[index];
+        return bytes.get(index) & 0xFF;
+    }
+
+    public String substring(int start, int end) {
+        if (chars != null)
+            return new String(chars, start, end - start);
+
+        char[] text = new char[end - start];
+        copyChars(start, end, text, 0);
+        return new String(text);
+    }
+
+    // A new source with [offset, offset+removed) replaced by inserted
+    public Source edit(int offset, int removed, String inserted) {
+        char[] text = new char[length - removed + inserted.length()];
+        copyChars(0, offset, text, 0);
+        inserted.getChars(0, inserted.length(), text, offset);
+        copyChars(offset + removed, length, text, offset + inserted.length());
+        //The edited source is still part of the same compilation, its names keep their IDs
+        Source edited = new Source(text, text.length);
+        edited.interner = interner;
+        return edited;
+    }
+
+    private void copyChars(int start, int end, char[] destination, int at) {
+        if (chars != null) {
+            System.arraycopy(chars, start, destination, at, end - start);
+            return;
+        }
+        for (int i = start; i < end; i++)
+            destination[at + i - start] = (char) (bytes.get(i) & 0xFF);
+    }
+
+    public int lineNumber(int offset) {
+        return lineOf(lineStarts(), offset) + 1;
+    }
+
+    public int charPosition(int offset) {
+        int[] starts = lineStarts();
+        return offset - starts[lineOf(starts, offset)] + 1;
+    }
+
+    private static int lineOf(int[] starts, int offset) {
+        int line = Arrays.binarySearch(starts, offset);
+        return line >= 0 ? line : -line - 2;
+    }
+
+    //Two threads may both build the index, they end up with the same array
+    private int[] lineStarts() {
+        int[] starts = lineStarts;
+        if (starts == null) {
+            starts = new int[64];
+            int count = 1;
+            int newline = -1;
+            while ((newline = Skipper.INSTANCE.findNewline(this, newline + 1, length)) < length) {
+                if (count == starts.length)
+                    starts = Arrays.copyOf(starts, count * 2);
+                starts[count++] = newline + 1;
+            }
+            starts = Arrays.copyOf(starts, count);
+            lineStarts = starts;
+        }
+        return starts;
+    }
+
+    // The names are given IDs by interner, which the other sources of the compilation should
+    // share. Has to be set before any name is interned. By default every source has its own
+    // ConcurrentNameTable, so its bodies can be parsed in parallel.
+    public void setInterner(Interner interner) {
+        this.interner = interner;
+    }
+
+    public Interner interner() {
+        return interner;
+    }
+
+    // The ID of the identifier at [start, end)
+    public int nameId(int start, int end) {
+        return interner.intern(this, start, end);
+    }
+
+    // Returns the one shared String for the identifier at [start, end).
+    // Only the first request for a name allocates, later ones find it in the interner.
+    public String intern(int start, int end) {
+        return interner.name(nameId(start, end));
+    }
+}
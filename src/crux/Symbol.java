@@ -5,8 +5,23 @@ import types.ErrorType;
 
 public class Symbol {
 
+    // Where a variable is kept, the code generator gives a symbol one at its declaration
+    public enum Storage {
+        //In the data segment, at the variable's label
+        GLOBAL,
+        //At an offset from the frame pointer
+        ARGUMENT,
+        LOCAL
+    }
+
     private String name;
+    //The name's ID from the compilation's Interner, -1 if it was not given one
+    private int id = -1;
     private Type type;
+    //Where the name was declared, -1 for the built in functions
+    private int location = -1;
+    private Storage storage;
+    private int offset;
 
     public Symbol(String name, Type type) {
         this.name = name;
@@ -14,6 +29,12 @@ public class Symbol {
         this.type = type;
     }
 
+    public Symbol(String name, int id, Type type, int location) {
+        this(name, type);
+        this.id = id;
+        this.location = location;
+    }
+
     protected Symbol(String name) {
         this.name = name;
         this.type = new ErrorType("Type not set.");
@@ -23,6 +44,10 @@ public class Symbol {
         return this.name;
     }
 
+    public int id() {
+        return id;
+    }
+
     public void setType(Type type) {
         this.type = type;
     }
@@ -31,7 +56,31 @@ public class Symbol {
         return type;
     }
 
+    public int location() {
+        return location;
+    }
+
+    public void setStorage(Storage storage, int offset) {
+        this.storage = storage;
+        this.offset = offset;
+    }
+
+    // null until the code generator gets to the declaration
+    public Storage storage() {
+        return storage;
+    }
+
+    // The offset from the frame pointer of an ARGUMENT or LOCAL
+    public int offset() {
+        return offset;
+    }
+
     public String toString() {
+        return toString(type);
+    }
+
+    // How the symbol prints with the given type
+    String toString(Type type) {
         return "Symbol(" + name + ":" + type + ")";
     }
 
@@ -39,9 +88,3 @@ public class Symbol {
         return new ErrorSymbol(message);
     }
 }
-
-class ErrorSymbol extends Symbol {
-    public ErrorSymbol(String message) {
-        super(message);
-    }
-}
@@ -0,0 +1,14 @@
+package crux;
+
+class SymbolNotFoundError extends Error {
+    private static final long serialVersionUID = 1L;
+    private String name;
+
+    SymbolNotFoundError(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+}
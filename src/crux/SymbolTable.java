@@ -21,23 +21,24 @@ public class SymbolTable {
     }
 
     public Symbol lookup(String name) throws SymbolNotFoundError {
-        if (symbolTable.containsKey(name))
-            return symbolTable.get(name);
-
-        if (parent != null)
-            return parent.lookup(name);
+        for (SymbolTable table = this; table != null; table = table.parent) {
+            Symbol symbol = table.symbolTable.get(name);
+            if (symbol != null)
+                return symbol;
+        }
 
         throw new SymbolNotFoundError(name);
     }
 
     public Symbol insert(String name, Type type) throws RedeclarationError {
+        return insert(new Symbol(name, type));
+    }
 
-        Symbol symbol = new Symbol(name, type);
-
-        if (symbolTable.containsKey(name))
+    public Symbol insert(Symbol symbol) throws RedeclarationError {
+        if (symbolTable.containsKey(symbol.name()))
             throw new RedeclarationError(symbol);
 
-        symbolTable.put(name, symbol);
+        symbolTable.put(symbol.name(), symbol);
         symbolsInDeclarationOrder.add(symbol);
         return symbol;
     }
@@ -55,42 +56,27 @@ public class SymbolTable {
     }
 
     public String toString() {
-        StringBuilder sb = new StringBuilder();
-        if (parent != null)
-            sb.append(parent.toString());
+        //The outermost table is printed first
+        ArrayList<SymbolTable> tables = new ArrayList<>();
+        for (SymbolTable table = this; table != null; table = table.parent)
+            tables.add(table);
 
-        StringBuilder buffer = new StringBuilder();
-        for (int i = 0; i < depth; i++) {
-            buffer.append("  ");
-        }
-
-        String indent = buffer.toString();
-        for (Symbol s : symbolsInDeclarationOrder) {
-            sb.append(indent);
-            sb.append(s.toString());
-            sb.append("\n");
+        StringBuilder sb = new StringBuilder();
+        for (int t = tables.size() - 1; t >= 0; t--) {
+            SymbolTable table = tables.get(t);
+
+            StringBuilder buffer = new StringBuilder();
+            for (int i = 0; i < table.depth; i++) {
+                buffer.append("  ");
+            }
+
+            String indent = buffer.toString();
+            for (Symbol s : table.symbolsInDeclarationOrder) {
+                sb.append(indent);
+                sb.append(s.toString());
+                sb.append("\n");
+            }
         }
         return sb.toString();
     }
 }
-
-class SymbolNotFoundError extends Error {
-    private static final long serialVersionUID = 1L;
-    private String name;
-
-    SymbolNotFoundError(String name) {
-        this.name = name;
-    }
-
-    public String name() {
-        return name;
-    }
-}
-
-class RedeclarationError extends Error {
-    private static final long serialVersionUID = 1L;
-
-    public RedeclarationError(Symbol sym) {
-        super("Symbol " + sym + " being redeclared.");
-    }
-}
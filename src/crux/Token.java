@@ -1,6 +1,6 @@
 package crux;
 
-import java.util.HashSet;
+import java.util.HashMap;
 
 public class Token {
     public static String studentName = "Eric Wolfe";
@@ -64,68 +64,122 @@ public class Token {
             return lexeme != null;
         }
 
+        public String lexeme() {
+            return lexeme;
+        }
+
         public boolean matches(String lexeme) {
             return lexeme.equals(this.lexeme);
         }
+
+        public boolean matches(Source source, int start, int length) {
+            if (this.lexeme == null || this.lexeme.length() != length)
+                return false;
+            for (int i = 0; i < length; i++) {
+                if (source.charAt(start + i) != this.lexeme.charAt(i))
+                    return false;
+            }
+            return true;
+        }
     }
 
-    //A HashSet containing all the static lexemes will make it quick for the tokenizer to know if something is a lexeme
-    private static final HashSet<String> LexemeSet = new HashSet<>();
+    //A HashMap from every static lexeme to its Kind will make it quick for the tokenizer to know if something is a lexeme
+    private static final HashMap<String, Kind> LexemeMap = new HashMap<>();
 
     static {
         Kind[] kinds = Kind.values();
         for (int i = 0; i < kinds.length - 5; i++) {
-            LexemeSet.add(kinds[i].lexeme);
+            LexemeMap.put(kinds[i].lexeme, kinds[i]);
         }
     }
 
     public static boolean isLexeme(String lexeme) {
-        return LexemeSet.contains(lexeme);
+        return LexemeMap.containsKey(lexeme);
     }
 
-    private int lineNum;
-    private int charPos;
     private Kind kind;
     private String lexeme = "";
 
-    private Token(int lineNum, int charPos) {
-        this.lineNum = lineNum;
-        this.charPos = charPos;
+    //Where the token starts in the source, the line number and char position are only worked out when asked for.
+    //Identifiers and numbers also remember their length, the String is made by lexeme()
+    private Source source;
+    private int offset;
+    private int length;
+
+    //The value of an INTEGER, or the bits of a FLOAT, as the Scanner worked it out.
+    //UNDECODED means the Scanner left it to be parsed from the lexeme.
+    //The name ID of an IDENTIFIER, UNDECODED until it is asked for.
+    private int value;
+
+    static final int UNDECODED = -1;
+
+    private Token(Source source, int offset) {
+        this.source = source;
+        this.offset = offset;
 
         this.kind = Kind.ERROR;
         this.lexeme = "No Lexeme Given";
     }
 
-    public Token(String lexeme, int lineNum, int charPos) {
-        this.lineNum = lineNum;
-        this.charPos = charPos;
+    public Token(String lexeme, Source source, int offset) {
+        this.source = source;
+        this.offset = offset;
 
         this.lexeme = lexeme;
-        this.kind = Kind.ERROR;
-
-        Kind[] values = Kind.values();
-
-        //We do length-5 so that we never iterate through the Kinds that have dynamic lexemes
-        for (int i = 0; i < values.length - 5; i++) {
-            if (values[i].matches(lexeme)) {
-                this.kind = values[i];
-                break;
-            }
-        }
+        this.kind = LexemeMap.getOrDefault(lexeme, Kind.ERROR);
     }
 
     public int lineNumber() {
-        return lineNum;
+        return source.lineNumber(offset);
     }
 
     public int charPosition() {
-        return charPos;
+        return source.charPosition(offset);
+    }
+
+    public Source source() {
+        return source;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    // Where a node built from the token is, the same as the offset
+    public int location() {
+        return offset;
     }
 
     public String lexeme() {
+        if (lexeme == null) {
+            if (kind == Kind.IDENTIFIER)
+                lexeme = source.interner().name(nameId());
+            else
+                lexeme = source.substring(offset, offset + length);
+        }
         return lexeme;
     }
 
+    // The ID the source's Interner gives an identifier's name
+    public int nameId() {
+        assert kind == Kind.IDENTIFIER;
+        if (value == UNDECODED)
+            value = source.nameId(offset, offset + length);
+        return value;
+    }
+
+    public int intValue() {
+        if (value == UNDECODED)
+            return java.lang.Integer.parseInt(lexeme());
+        return value;
+    }
+
+    public float floatValue() {
+        if (value == UNDECODED)
+            return java.lang.Float.parseFloat(lexeme());
+        return java.lang.Float.intBitsToFloat(value);
+    }
+
     public Kind kind() {
         return this.kind;
     }
@@ -136,39 +190,53 @@ public class Token {
 
     public String toString() {
         if (this.kind == Kind.IDENTIFIER || this.kind == Kind.FLOAT || this.kind == Kind.INTEGER || this.kind == Kind.ERROR)
-            return this.kind.name() + "(" + this.lexeme + ")(lineNum:" + this.lineNum + ", charPos:" + this.charPos + ")";
-        return this.kind.name() + "(lineNum:" + this.lineNum + ", charPos:" + this.charPos + ")";
+            return this.kind.name() + "(" + lexeme() + ")(lineNum:" + lineNumber() + ", charPos:" + charPosition() + ")";
+        return this.kind.name() + "(lineNum:" + lineNumber() + ", charPos:" + charPosition() + ")";
+    }
+
+    private static Token fromSource(Kind kind, Source source, int offset, int length) {
+        Token t = new Token(source, offset);
+        t.kind = kind;
+        t.lexeme = null;
+        t.length = length;
+        return t;
+    }
+
+    //Used for keywords and punctuation, which share the lexeme stored in their Kind
+    public static Token Static(Kind kind, Source source, int offset) {
+        assert kind.hasStaticLexeme();
+        Token t = new Token(source, offset);
+        t.kind = kind;
+        t.lexeme = kind.lexeme;
+        return t;
     }
 
-    public static Token Float(String lexeme, int lineNum, int charPos) {
-        Token t = new Token(lineNum, charPos);
-        t.kind = Kind.FLOAT;
-        t.lexeme = lexeme;
+    public static Token Float(Source source, int offset, int length, int bits) {
+        Token t = fromSource(Kind.FLOAT, source, offset, length);
+        t.value = bits;
         return t;
     }
 
-    public static Token Integer(String lexeme, int lineNum, int charPos) {
-        Token t = new Token(lineNum, charPos);
-        t.kind = Kind.INTEGER;
-        t.lexeme = lexeme;
+    public static Token Integer(Source source, int offset, int length, int value) {
+        Token t = fromSource(Kind.INTEGER, source, offset, length);
+        t.value = value;
         return t;
     }
 
-    public static Token Identifier(String lexeme, int lineNum, int charPos) {
-        Token t = new Token(lineNum, charPos);
-        t.kind = Kind.IDENTIFIER;
-        t.lexeme = lexeme;
+    public static Token Identifier(Source source, int offset, int length) {
+        Token t = fromSource(Kind.IDENTIFIER, source, offset, length);
+        t.value = UNDECODED;
         return t;
     }
 
-    public static Token EOF(int lineNum, int charPos) {
-        Token t = new Token(lineNum, charPos);
+    public static Token EOF(Source source, int offset) {
+        Token t = new Token(source, offset);
         t.kind = Kind.EOF;
         return t;
     }
 
-    public static Token Error(String message, int lineNum, int charPos) {
-        Token t = new Token(lineNum, charPos);
+    public static Token Error(String message, Source source, int offset) {
+        Token t = new Token(source, offset);
         t.kind = Kind.ERROR;
         t.lexeme = message;
         return t;
@@ -0,0 +1,297 @@
+package crux;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// A whole file of tokens stored as parallel primitive arrays instead of Token objects:
+// one byte for the kind, two ints for where the lexeme is in the source and one for the value
+// of a number (about 13 bytes a token).
+// Line numbers and char positions are worked out from the offsets by the Source when asked for.
+// The last token is always EOF.
+public final class TokenBuffer {
+
+    private static final Token.Kind[] KINDS = Token.Kind.values();
+
+    private final Source source;
+    private byte[] kind;
+    private int[] start;
+    private int[] length;
+    private int[] value;
+    private int size;
+
+    //Error tokens are rare, so their messages are kept on the side
+    private final HashMap<Integer, String> errors = new HashMap<>();
+
+    private TokenBuffer(Source source, int capacity) {
+        this.source = source;
+        this.kind = new byte[capacity];
+        this.start = new int[capacity];
+        this.length = new int[capacity];
+        this.value = new int[capacity];
+    }
+
+    public static TokenBuffer scan(Source source) {
+        //Guess about one token for every six characters to start with
+        TokenBuffer buffer = new TokenBuffer(source, Math.max(16, source.length() / 6));
+        Scanner scanner = new Scanner(source);
+
+        Token.Kind kind;
+        do {
+            kind = scanner.scan();
+            if (kind == Token.Kind.ERROR)
+                buffer.errors.put(buffer.size, scanner.tokenError);
+            buffer.add(kind, scanner.tokenStart, scanner.tokenLength, scanner.tokenValue);
+        } while (kind != Token.Kind.EOF);
+
+        return buffer;
+    }
+
+    // Re-lexes the buffer for an edit that replaces source[offset, offset+removed) with inserted.
+    // Crux tokens never span lines and the Scanner keeps no state between tokens, so scanning
+    // restarts at the end of the last token the edit can't touch, and stops as soon as a token
+    // starts at the (shifted) start of an old token past the edit. From there on the text is the
+    // same, so the rest of the old tokens are copied over with their offsets moved.
+    public Change edit(int offset, int removed, String inserted) {
+        Source edited = source.edit(offset, removed, inserted);
+        int shift = inserted.length() - removed;
+        int editEnd = offset + inserted.length();
+
+        //A token that ends right where the edit starts could grow (and the `!` error mentions the
+        //char after it), so only the tokens that end before the edit are kept
+        int first = 0;
+        int high = size - 1;
+        while (first < high) {
+            int middle = (first + high) >>> 1;
+            if (start[middle] + length[middle] < offset)
+                first = middle + 1;
+            else
+                high = middle;
+        }
+        int restart = first == 0 ? 0 : start[first - 1] + length[first - 1];
+
+        TokenBuffer buffer = new TokenBuffer(edited, size + 16);
+        buffer.copy(this, 0, first, 0);
+
+        Scanner scanner = new Scanner(edited, restart, edited.length());
+        int old = first;
+        Token.Kind kind;
+        while (true) {
+            kind = scanner.scan();
+            int tokenStart = scanner.tokenStart;
+            if (tokenStart >= editEnd) {
+                int oldStart = tokenStart - shift;
+                while (old < size && start[old] < oldStart)
+                    old++;
+                if (old < size && start[old] == oldStart)
+                    break;
+            }
+            if (kind == Token.Kind.ERROR)
+                buffer.errors.put(buffer.size, scanner.tokenError);
+            buffer.add(kind, tokenStart, scanner.tokenLength, scanner.tokenValue);
+            if (kind == Token.Kind.EOF)
+                return new Change(buffer, first, size, buffer.size);
+        }
+
+        int newEnd = buffer.size;
+        buffer.copy(this, old, size, shift);
+        return new Change(buffer, first, old, newEnd);
+    }
+
+    // Appends the tokens [from, to) of another buffer with their offsets moved by shift
+    private void copy(TokenBuffer other, int from, int to, int shift) {
+        int count = to - from;
+        if (size + count > kind.length) {
+            int capacity = size + count;
+            kind = Arrays.copyOf(kind, capacity);
+            start = Arrays.copyOf(start, capacity);
+            length = Arrays.copyOf(length, capacity);
+            value = Arrays.copyOf(value, capacity);
+        }
+        System.arraycopy(other.kind, from, kind, size, count);
+        System.arraycopy(other.length, from, length, size, count);
+        System.arraycopy(other.value, from, value, size, count);
+        for (int i = 0; i < count; i++)
+            start[size + i] = other.start[from + i] + shift;
+
+        for (Map.Entry<Integer, String> error : other.errors.entrySet()) {
+            int index = error.getKey();
+            if (index >= from && index < to)
+                errors.put(index - from + size, error.getValue());
+        }
+        size += count;
+    }
+
+    private void add(Token.Kind kind, int start, int length, int value) {
+        if (size == this.kind.length) {
+            int capacity = size * 2;
+            this.kind = Arrays.copyOf(this.kind, capacity);
+            this.start = Arrays.copyOf(this.start, capacity);
+            this.length = Arrays.copyOf(this.length, capacity);
+            this.value = Arrays.copyOf(this.value, capacity);
+        }
+        this.kind[size] = (byte) kind.ordinal();
+        this.start[size] = start;
+        this.length[size] = length;
+        this.value[size] = value;
+        size++;
+    }
+
+    public Source source() {
+        return source;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Token.Kind kind(int index) {
+        return KINDS[kind[index]];
+    }
+
+    public int start(int index) {
+        return start[index];
+    }
+
+    public int length(int index) {
+        return length[index];
+    }
+
+    public int lineNumber(int index) {
+        return source.lineNumber(start[index]);
+    }
+
+    public int charPosition(int index) {
+        return source.charPosition(start[index]);
+    }
+
+    public String lexeme(int index) {
+        Token.Kind kind = kind(index);
+        if (kind.hasStaticLexeme())
+            return kind.lexeme();
+        switch (kind) {
+            case IDENTIFIER:
+                return source.intern(start[index], start[index] + length[index]);
+            case INTEGER:
+            case FLOAT:
+                return source.substring(start[index], start[index] + length[index]);
+            case ERROR:
+                return errors.get(index);
+            default:
+                return token(index).lexeme();
+        }
+    }
+
+    // Builds a Token object for the token at index
+    public Token token(int index) {
+        switch (kind(index)) {
+            case IDENTIFIER:
+                return Token.Identifier(source, start[index], length[index]);
+            case INTEGER:
+                return Token.Integer(source, start[index], length[index], value[index]);
+            case FLOAT:
+                return Token.Float(source, start[index], length[index], value[index]);
+            case ERROR:
+                return Token.Error(errors.get(index), source, start[index]);
+            case EOF:
+                return Token.EOF(source, start[index]);
+            default:
+                return Token.Static(kind(index), source, start[index]);
+        }
+    }
+
+    public Cursor cursor() {
+        return new Cursor(0);
+    }
+
+    // Walks the buffer for the Parser. Moving to any index is free, so it can look ahead or go back.
+    public final class Cursor implements TokenCursor {
+        private int index;
+
+        private Cursor(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public int index() {
+            return index;
+        }
+
+        public void seek(int index) {
+            this.index = index;
+        }
+
+        public TokenBuffer buffer() {
+            return TokenBuffer.this;
+        }
+
+        @Override
+        public Token.Kind kind() {
+            return KINDS[kind[index]];
+        }
+
+        @Override
+        public int offset() {
+            return start[index];
+        }
+
+        @Override
+        public Source source() {
+            return source;
+        }
+
+        @Override
+        public int lineNumber() {
+            return TokenBuffer.this.lineNumber(index);
+        }
+
+        @Override
+        public int charPosition() {
+            return TokenBuffer.this.charPosition(index);
+        }
+
+        @Override
+        public Token token() {
+            return TokenBuffer.this.token(index);
+        }
+
+        @Override
+        public void advance() {
+            //Stay on the EOF token once it is reached, like the Scanner does
+            if (index < size - 1)
+                index++;
+        }
+    }
+
+    // The result of an edit: the tokens [start, oldEnd) of the old buffer were replaced by
+    // the tokens [start, newEnd) of the new one, everything else is the same token moved
+    public static final class Change {
+        private final TokenBuffer buffer;
+        private final int start;
+        private final int oldEnd;
+        private final int newEnd;
+
+        private Change(TokenBuffer buffer, int start, int oldEnd, int newEnd) {
+            this.buffer = buffer;
+            this.start = start;
+            this.oldEnd = oldEnd;
+            this.newEnd = newEnd;
+        }
+
+        public TokenBuffer buffer() {
+            return buffer;
+        }
+
+        public int start() {
+            return start;
+        }
+
+        public int oldEnd() {
+            return oldEnd;
+        }
+
+        public int newEnd() {
+            return newEnd;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package crux;
+
+// The Parser reads its tokens through a cursor, so it does not care whether they come
+// straight from a Scanner or from a TokenBuffer that was filled beforehand.
+interface TokenCursor {
+
+    // The kind of the current token
+    Token.Kind kind();
+
+    // Where the current token starts in the source
+    int offset();
+
+    Source source();
+
+    int lineNumber();
+
+    int charPosition();
+
+    // How many tokens come before the current one
+    int index();
+
+    // The current token as a Token object, only asked for when the parser keeps the token
+    Token token();
+
+    // Moves to the next token
+    void advance();
+
+    // Lets go of anything that only reading more tokens needs, once the parse is done
+    default void close() {
+    }
+}
@@ -0,0 +1,185 @@
+package crux;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Runs a Scanner on its own thread so lexing overlaps with parsing.
+// The tokens go through a single producer / single consumer ring buffer: the scanner thread only
+// writes slots and the tail, the parser only reads slots and writes the head. Neither side takes
+// a lock, the counters are published once per batch, and the scanner waits while the ring is full
+// so no more than CAPACITY tokens are ever held. There is only one scanner, so the tokens come out
+// in exactly the order it found them. A side that has to wait spins for a moment and then parks.
+// close() stops the scanner thread when the parser is done before the end of the source.
+public final class TokenPipeline implements TokenCursor, AutoCloseable {
+
+    private static final int CAPACITY = 1 << 14;
+    private static final int MASK = CAPACITY - 1;
+    private static final int BATCH = 256;
+    private static final int SPINS = 128;
+    private static final long PARK_NANOS = 50_000;
+
+    private static final Token.Kind[] KINDS = Token.Kind.values();
+
+    private final Source source;
+
+    //The ring, one slot per token in the same layout as a TokenBuffer
+    private final byte[] kind = new byte[CAPACITY];
+    private final int[] start = new int[CAPACITY];
+    private final int[] length = new int[CAPACITY];
+    private final int[] value = new int[CAPACITY];
+    private final String[] error = new String[CAPACITY];
+
+    //Number of tokens the scanner has published and the parser is done with
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private volatile Throwable failure;
+    private volatile boolean closed;
+    private final Thread thread;
+
+    //Parser side: the current token and the last tail it saw
+    private long index;
+    private long available;
+
+    public TokenPipeline(Scanner scanner) {
+        this.source = scanner.source();
+        thread = new Thread(() -> produce(scanner), "crux-scanner");
+        thread.setDaemon(true);
+        thread.start();
+        waitFor(0);
+    }
+
+    private void produce(Scanner scanner) {
+        try {
+            long count = 0;
+            long consumed = 0;
+            Token.Kind kind;
+            do {
+                if (count - consumed == CAPACITY) {
+                    tail.lazySet(count);
+                    int spins = 0;
+                    while (count - (consumed = head.get()) == CAPACITY) {
+                        if (closed)
+                            return;
+                        spins = pause(spins);
+                    }
+                }
+
+                kind = scanner.scan();
+                int slot = (int) count & MASK;
+                this.kind[slot] = (byte) kind.ordinal();
+                start[slot] = scanner.tokenStart;
+                length[slot] = scanner.tokenLength;
+                value[slot] = scanner.tokenValue;
+                error[slot] = kind == Token.Kind.ERROR ? scanner.tokenError : null;
+                count++;
+
+                if ((count & (BATCH - 1)) == 0 || kind == Token.Kind.EOF)
+                    tail.lazySet(count);
+            } while (kind != Token.Kind.EOF && !closed);
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        }
+    }
+
+    // Waits until the scanner has published the token at position
+    private void waitFor(long position) {
+        if (position < available)
+            return;
+
+        //Let the scanner have every slot before this one while waiting
+        head.lazySet(position);
+        int spins = 0;
+        while (position >= (available = tail.get())) {
+            if (failure != null)
+                throw new IllegalStateException("The scanner thread failed", failure);
+            if (closed)
+                throw new IllegalStateException("The pipeline is closed");
+            spins = pause(spins);
+        }
+    }
+
+    private static int pause(int spins) {
+        if (spins < SPINS)
+            Thread.onSpinWait();
+        else
+            LockSupport.parkNanos(PARK_NANOS);
+        return spins + 1;
+    }
+
+    // Whether the scanner thread is still running
+    boolean scanning() {
+        return thread.isAlive();
+    }
+
+    // Stops the scanner thread. The tokens read so far stay readable, but the pipeline can't
+    // go past the last one the scanner published.
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+    }
+
+    private int slot() {
+        return (int) index & MASK;
+    }
+
+    @Override
+    public Token.Kind kind() {
+        return KINDS[kind[slot()]];
+    }
+
+    @Override
+    public int offset() {
+        return start[slot()];
+    }
+
+    @Override
+    public Source source() {
+        return source;
+    }
+
+    @Override
+    public int lineNumber() {
+        return source.lineNumber(start[slot()]);
+    }
+
+    @Override
+    public int charPosition() {
+        return source.charPosition(start[slot()]);
+    }
+
+    @Override
+    public int index() {
+        return (int) index;
+    }
+
+    @Override
+    public Token token() {
+        int slot = slot();
+        switch (KINDS[kind[slot]]) {
+            case IDENTIFIER:
+                return Token.Identifier(source, start[slot], length[slot]);
+            case INTEGER:
+                return Token.Integer(source, start[slot], length[slot], value[slot]);
+            case FLOAT:
+                return Token.Float(source, start[slot], length[slot], value[slot]);
+            case ERROR:
+                return Token.Error(error[slot], source, start[slot]);
+            case EOF:
+                return Token.EOF(source, start[slot]);
+            default:
+                return Token.Static(KINDS[kind[slot]], source, start[slot]);
+        }
+    }
+
+    @Override
+    public void advance() {
+        //Stay on the EOF token once it is reached, like the Scanner does
+        if (kind() == Token.Kind.EOF)
+            return;
+        index++;
+        if ((index & (BATCH - 1)) == 0)
+            head.lazySet(index);
+        waitFor(index);
+    }
+}
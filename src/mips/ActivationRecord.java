@@ -1,7 +1,5 @@
 package mips;
 
-import java.util.HashMap;
-
 import crux.Symbol;
 import types.*;
 
@@ -10,47 +8,40 @@ public class ActivationRecord {
     private ast.FunctionDefinition func;
     private ActivationRecord parent;
     private int stackSize;
-    private HashMap<Symbol, Integer> locals;
-    private HashMap<Symbol, Integer> arguments;
+    //Shared by every frame, so a global's label is found without going back to the global frame
+    protected final Labels labels;
 
     public static ActivationRecord newGlobalFrame() {
-        return new GlobalFrame();
+        return new GlobalFrame(new Labels());
+    }
+
+    static ActivationRecord newGlobalFrame(Labels labels) {
+        return new GlobalFrame(labels);
     }
 
+    //The size of an array is kept on its type, which there is only one of
     public static int numBytes(Type type) {
-        if (type instanceof BoolType)
-            return 4;
-        if (type instanceof IntType)
-            return 4;
-        if (type instanceof FloatType)
-            return 4;
-        if (type instanceof ArrayType) {
-            ArrayType aType = (ArrayType) type;
-            return aType.extent() * numBytes(aType.base());
-        }
-        throw new RuntimeException("No size known for " + type);
+        return type.numBytes();
     }
 
-    protected ActivationRecord() {
+    protected ActivationRecord(Labels labels) {
         this.func = null;
         this.parent = null;
         this.stackSize = 0;
-        this.locals = null;
-        this.arguments = null;
+        this.labels = labels;
     }
 
     public ActivationRecord(ast.FunctionDefinition fd, ActivationRecord parent) {
         this.func = fd;
         this.parent = parent;
         this.stackSize = 0;
-        this.locals = new HashMap<Symbol, Integer>();
+        this.labels = parent.labels;
 
-        // map this function's parameters
-        this.arguments = new HashMap<Symbol, Integer>();
+        // place this function's parameters
         int offset = 0;
         for (int i = fd.arguments().size() - 1; i >= 0; --i) {
             Symbol arg = fd.arguments().get(i);
-            arguments.put(arg, offset);
+            arg.setStorage(Symbol.Storage.ARGUMENT, offset);
             offset += numBytes(arg.type());
         }
     }
@@ -59,6 +50,10 @@ public class ActivationRecord {
         return func.symbol().name();
     }
 
+    public Symbol function() {
+        return func.function();
+    }
+
     public ActivationRecord parent() {
         return parent;
     }
@@ -81,36 +76,26 @@ public class ActivationRecord {
 //        String instruction = "subu &sp, &sp, %d";
 //        program.appendInstruction(String.format(instruction,
 //                space)); //The amount of space we are allocating on the stack for this local variable
-        int offset = -12 - stackSize;
-        locals.put(symbol, offset);
+        symbol.setStorage(Symbol.Storage.LOCAL, -12 - stackSize);
         stackSize += space;
     }
 
+    // The symbol was given its storage at its declaration, so this is the same from any frame
     public void getAddress(Program program, String register, Symbol sym) {
-        Integer offset;
-        if (locals.containsKey(sym))
-            offset = locals.get(sym);
-        else if (arguments.containsKey(sym))
-            offset = arguments.get(sym);
-        else {
-            parent.getAddress(program, register, sym);
-            return;
-        }
-
-        //This means its one of the parameters
-        String instruction = "addi %s, $fp, %s";
-        program.appendInstruction(String.format(instruction,
-                register, //The register that we are going to load the address into
-                offset)); //The offset of the parameter variable that they are referencing
+        Symbol.Storage storage = sym.storage();
+        if (storage == Symbol.Storage.LOCAL || storage == Symbol.Storage.ARGUMENT)
+            //The offset of the variable from the frame pointer
+            program.appendInstruction("addi " + register + ", $fp, " + sym.offset());
+        else
+            //For global data we just give the unique label address of the symbol
+            program.appendInstruction("la " + register + ", " + labels.global(sym));
     }
 }
 
 class GlobalFrame extends ActivationRecord {
-    public GlobalFrame() {
-    }
 
-    private String getUniqueGlobalLabel(String name) {
-        return "cruxdata." + name;
+    public GlobalFrame(Labels labels) {
+        super(labels);
     }
 
     @Override
@@ -126,18 +111,10 @@ class GlobalFrame extends ActivationRecord {
     }
 
     private String reserveSpace(Symbol symbol, int space) {
+        symbol.setStorage(Symbol.Storage.GLOBAL, 0);
         String instruction = "%s: .space %d";
         return String.format(instruction,
-                getUniqueGlobalLabel(symbol.name()),
+                labels.global(symbol),
                 space);
     }
-
-    @Override
-    public void getAddress(Program program, String register, Symbol sym) {
-        String instruction = "la %s, %s";
-        //Load the address into the the given register. For global data we just give the unique label address of the symbol
-        program.appendInstruction(String.format(instruction,
-                register, //The register that we are going to store the address into
-                getUniqueGlobalLabel(sym.name()))); //The label of the given global symbol
-    }
 }
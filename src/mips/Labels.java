@@ -0,0 +1,63 @@
+package mips;
+
+import java.util.Arrays;
+
+import crux.Symbol;
+
+// The labels of the functions and global variables, by the ID of their names. Each label is
+// made the first time it is asked for, so a name is only turned into label text once and the
+// checks for main are a comparison of references.
+final class Labels {
+
+    private static final String MAIN = "main";
+    private static final String MAIN_END = "main.end";
+
+    private String[] functions = new String[64];
+    private String[] functionEnds = new String[64];
+    private String[] globals = new String[64];
+
+    // Where a call to the function jumps
+    String function(Symbol function) {
+        int id = function.id();
+        if (id < 0)
+            return functionLabel(function.name());
+        functions = fit(functions, id);
+        if (functions[id] == null)
+            functions[id] = functionLabel(function.name());
+        return functions[id];
+    }
+
+    private static String functionLabel(String name) {
+        return name.equals(MAIN) ? MAIN : "func." + name;
+    }
+
+    // Where a return from the function jumps, for the epilogue
+    String functionEnd(Symbol function) {
+        int id = function.id();
+        if (id < 0)
+            return function(function) == MAIN ? MAIN_END : function(function) + ".end";
+        functionEnds = fit(functionEnds, id);
+        if (functionEnds[id] == null)
+            functionEnds[id] = function(function) == MAIN ? MAIN_END : function(function) + ".end";
+        return functionEnds[id];
+    }
+
+    boolean isMain(Symbol function) {
+        return function(function) == MAIN;
+    }
+
+    // The label of a global variable's space
+    String global(Symbol global) {
+        int id = global.id();
+        if (id < 0)
+            return "cruxdata." + global.name();
+        globals = fit(globals, id);
+        if (globals[id] == null)
+            globals[id] = "cruxdata." + global.name();
+        return globals[id];
+    }
+
+    private static String[] fit(String[] labels, int id) {
+        return id < labels.length ? labels : Arrays.copyOf(labels, Math.max(id + 1, 2 * labels.length));
+    }
+}
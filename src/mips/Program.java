@@ -1,7 +1,6 @@
 package mips;
 
-import types.FloatType;
-import types.IntType;
+import types.Types;
 
 import java.io.PrintStream;
 import java.util.ArrayList;
@@ -65,7 +64,7 @@ public class Program {
         String pushValue = "sw %s, 0($sp)";
 
         appendInstruction(String.format(increaseStack,
-                ActivationRecord.numBytes(new IntType()))); //Increase the stack size by the number of bytes in an int
+                ActivationRecord.numBytes(Types.INT))); //Increase the stack size by the number of bytes in an int
 
         appendInstruction(String.format(pushValue,
                 reg)); //Store the value from the register into the address that the stack pointer points too
@@ -77,7 +76,7 @@ public class Program {
         String pushValue = "swc1 %s, 0($sp)";
 
         appendInstruction(String.format(increaseStack,
-                ActivationRecord.numBytes(new FloatType()))); //Increase the stack size by the number of bytes in a float
+                ActivationRecord.numBytes(Types.FLOAT))); //Increase the stack size by the number of bytes in a float
 
         appendInstruction(String.format(pushValue,
                 reg)); //Store the value from the register into the address that the stack pointer points too
@@ -92,7 +91,7 @@ public class Program {
                 reg)); //Store the value from the register into the address that the stack pointer points too
 
         appendInstruction(String.format(decreaseStack,
-                ActivationRecord.numBytes(new IntType()))); //Increase the stack size by the number of bytes in an int
+                ActivationRecord.numBytes(Types.INT))); //Increase the stack size by the number of bytes in an int
     }
 
     // Pop a floating point value from the stack into register reg
@@ -104,7 +103,7 @@ public class Program {
                 reg)); //Store the value from the register into the address that the stack pointer points too
 
         appendInstruction(String.format(decreaseStack,
-                ActivationRecord.numBytes(new FloatType()))); //Increase the stack size by the number of bytes in an int
+                ActivationRecord.numBytes(Types.FLOAT))); //Increase the stack size by the number of bytes in an int
     }
 
     // Insert a function prologue at position pos
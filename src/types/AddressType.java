@@ -2,9 +2,10 @@ package types;
 
 public class AddressType extends Type {
 
-    private Type base;
+    private final Type base;
 
-    public AddressType(Type base) {
+    // Made through Types.address, so there is one instance for each base type
+    AddressType(Type base) {
         this.base = base;
     }
 
@@ -18,7 +19,7 @@ public class AddressType extends Type {
 
     public Type index(Type type) {
         if (type instanceof IntType && base instanceof ArrayType)
-            return new AddressType(base.index(type));
+            return Types.address(base.index(type));
         return super.index(type);
     }
 
@@ -30,18 +31,12 @@ public class AddressType extends Type {
     }
 
     @Override
-    public String toString() {
-        return "Address(" + base + ")";
+    boolean hasError() {
+        return base.hasError();
     }
 
     @Override
-    public boolean equivalent(Type that) {
-        if (that == null)
-            return false;
-        if (!(that instanceof AddressType))
-            return false;
-
-        AddressType aType = (AddressType) that;
-        return this.base.equivalent(aType.base);
+    public String toString() {
+        return "Address(" + base + ")";
     }
 }
@@ -2,10 +2,13 @@ package types;
 
 public class ArrayType extends Type {
 
-    private Type base;
-    private int extent;
+    private final Type base;
+    private final int extent;
+    //Worked out the first time it is asked for, the base may have no size
+    private int numBytes = -1;
 
-    public ArrayType(int extent, Type base) {
+    // Made through Types.array, so there is one instance of each array type
+    ArrayType(int extent, Type base) {
         this.extent = extent;
         this.base = base;
     }
@@ -33,18 +36,19 @@ public class ArrayType extends Type {
     }
 
     @Override
-    public String toString() {
-        return "array[" + extent + "," + base + "]";
+    public int numBytes() {
+        if (numBytes < 0)
+            numBytes = extent * base.numBytes();
+        return numBytes;
     }
 
     @Override
-    public boolean equivalent(Type that) {
-        if (that == null)
-            return false;
-        if (!(that instanceof ArrayType))
-            return false;
-
-        ArrayType aType = (ArrayType) that;
-        return this.extent == aType.extent && base.equivalent(aType.base);
+    boolean hasError() {
+        return base.hasError();
+    }
+
+    @Override
+    public String toString() {
+        return "array[" + extent + "," + base + "]";
     }
 }
@@ -2,7 +2,8 @@ package types;
 
 public class BoolType extends Type {
 
-    public BoolType() {
+    // The one instance is Types.BOOL
+    BoolType() {
     }
 
     @Override
@@ -14,34 +15,29 @@ public class BoolType extends Type {
         if (!(that instanceof BoolType))
             return super.and(that);
 
-        return new BoolType();
+        return Types.BOOL;
     }
 
     public Type or(Type that) {
         if (!(that instanceof BoolType))
             return super.or(that);
 
-        return new BoolType();
+        return Types.BOOL;
     }
 
     public Type not() {
-        return new BoolType();
+        return Types.BOOL;
     }
 
     public Type assign(Type type) {
         if (type instanceof BoolType)
-            return new BoolType();
+            return Types.BOOL;
 
         return super.assign(type);
     }
 
     @Override
-    public boolean equivalent(Type that) {
-        if (that == null)
-            return false;
-        if (!(that instanceof BoolType))
-            return false;
-
-        return true;
+    public int numBytes() {
+        return 4;
     }
 }    
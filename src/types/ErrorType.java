@@ -20,6 +20,12 @@ public class ErrorType extends Type {
         return "ErrorType(" + message + ")";
     }
     
+    @Override
+    boolean hasError()
+    {
+        return true;
+    }
+    
     @Override
     public boolean equivalent(Type that)
     {
@@ -2,7 +2,8 @@ package types;
 
 public class FloatType extends Type {
 
-    public FloatType() {
+    // The one instance is Types.FLOAT
+    FloatType() {
     }
 
     @Override
@@ -14,50 +15,46 @@ public class FloatType extends Type {
     public Type add(Type that) {
         if (!(that instanceof FloatType))
             return super.add(that);
-        return new FloatType();
+        return Types.FLOAT;
     }
 
     @Override
     public Type sub(Type that) {
         if (!(that instanceof FloatType))
             return super.sub(that);
-        return new FloatType();
+        return Types.FLOAT;
     }
 
     @Override
     public Type mul(Type that) {
         if (!(that instanceof FloatType))
             return super.mul(that);
-        return new FloatType();
+        return Types.FLOAT;
     }
 
     @Override
     public Type div(Type that) {
         if (!(that instanceof FloatType))
             return super.div(that);
-        return new FloatType();
+        return Types.FLOAT;
     }
 
     @Override
     public Type compare(Type that) {
         if (!(that instanceof FloatType))
             return super.compare(that);
-        return new BoolType();
+        return Types.BOOL;
     }
 
     public Type assign(Type type) {
         if (type instanceof FloatType)
-            return new FloatType();
+            return Types.FLOAT;
 
         return super.assign(type);
     }
 
     @Override
-    public boolean equivalent(Type that) {
-        if (that == null)
-            return false;
-        if (!(that instanceof FloatType))
-            return false;
-        return true;
+    public int numBytes() {
+        return 4;
     }
 }
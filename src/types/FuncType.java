@@ -2,10 +2,11 @@ package types;
 
 public class FuncType extends Type {
 
-    private TypeList args;
-    private Type ret;
+    private final TypeList args;
+    private final Type ret;
 
-    public FuncType(TypeList args, Type returnType) {
+    // Made through Types.func, so there is one instance of each signature
+    FuncType(TypeList args, Type returnType) {
         this.args = args;
         this.ret = returnType;
     }
@@ -29,18 +30,12 @@ public class FuncType extends Type {
     }
 
     @Override
-    public String toString() {
-        return "func(" + args + "):" + ret;
+    boolean hasError() {
+        return args.hasError() || ret.hasError();
     }
 
     @Override
-    public boolean equivalent(Type that) {
-        if (that == null)
-            return false;
-        if (!(that instanceof FuncType))
-            return false;
-
-        FuncType aType = (FuncType) that;
-        return this.ret.equivalent(aType.ret) && this.args.equivalent(aType.args);
+    public String toString() {
+        return "func(" + args + "):" + ret;
     }
 }
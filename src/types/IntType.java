@@ -2,7 +2,8 @@ package types;
 
 public class IntType extends Type {
 
-    public IntType() {
+    // The one instance is Types.INT
+    IntType() {
     }
 
     @Override
@@ -14,50 +15,46 @@ public class IntType extends Type {
     public Type add(Type that) {
         if (!(that instanceof IntType))
             return super.add(that);
-        return new IntType();
+        return Types.INT;
     }
 
     @Override
     public Type sub(Type that) {
         if (!(that instanceof IntType))
             return super.sub(that);
-        return new IntType();
+        return Types.INT;
     }
 
     @Override
     public Type mul(Type that) {
         if (!(that instanceof IntType))
             return super.mul(that);
-        return new IntType();
+        return Types.INT;
     }
 
     @Override
     public Type div(Type that) {
         if (!(that instanceof IntType))
             return super.div(that);
-        return new IntType();
+        return Types.INT;
     }
 
     @Override
     public Type compare(Type that) {
         if (!(that instanceof IntType))
             return super.compare(that);
-        return new BoolType();
+        return Types.BOOL;
     }
 
     public Type assign(Type type) {
         if (type instanceof IntType)
-            return new IntType();
+            return Types.INT;
 
         return super.assign(type);
     }
 
     @Override
-    public boolean equivalent(Type that) {
-        if (that == null)
-            return false;
-        if (!(that instanceof IntType))
-            return false;
-        return true;
+    public int numBytes() {
+        return 4;
     }
 }
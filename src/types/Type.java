@@ -4,10 +4,10 @@ public abstract class Type {
     
     public static Type getBaseType(String typeStr)
     {
-        if (typeStr.equals("int")) return new IntType();
-        if (typeStr.equals("float")) return new FloatType();
-        if (typeStr.equals("bool")) return new BoolType();
-        if (typeStr.equals("void")) return new VoidType();
+        if (typeStr.equals("int")) return Types.INT;
+        if (typeStr.equals("float")) return Types.FLOAT;
+        if (typeStr.equals("bool")) return Types.BOOL;
+        if (typeStr.equals("void")) return Types.VOID;
         return new ErrorType("Unkown type: " + typeStr);
     }
     
@@ -71,6 +71,22 @@ public abstract class Type {
         return new ErrorType("Cannot assign " + source + " to " + this + ".");
     }
     
-    // Perform a structural equivalence test
-    abstract public boolean equivalent(Type that);
+    // The space a value of the type takes in memory
+    public int numBytes()
+    {
+        throw new RuntimeException("No size known for " + this);
+    }
+    
+    // Perform a structural equivalence test. Types are canonical (see Types), so the same
+    // structure is the same object.
+    public boolean equivalent(Type that)
+    {
+        return this == that;
+    }
+    
+    // Whether there is an ErrorType in the type, such a type is not canonical
+    boolean hasError()
+    {
+        return false;
+    }
 }
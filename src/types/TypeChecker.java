@@ -1,24 +1,33 @@
 package types;
 
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 
 import ast.*;
+import crux.Diagnostic;
+import crux.ErrorLog;
 import crux.Symbol;
 
 public class TypeChecker implements CommandVisitor {
 
-    private static IntType INT = new IntType();
-    private static FloatType FLOAT = new FloatType();
-    private static BoolType BOOL = new BoolType();
-    private static VoidType VOID = new VoidType();
+    private static final IntType INT = Types.INT;
+    private static final FloatType FLOAT = Types.FLOAT;
+    private static final BoolType BOOL = Types.BOOL;
+    private static final VoidType VOID = Types.VOID;
 
 
-    private HashMap<Command, Type> typeMap;
-    private StringBuffer errorBuffer;
+    //The type of every node checked, by the node's ID. The IDs only mean something among the
+    //nodes of the parse, or the FlatTree, that was checked.
+    private Nodes checked;
+    private Type[] typeOf;
+    private ErrorLog errors;
 
     private Type currentReturnType;
     private Symbol currentFunction;
 
+    private final Traversal traversal;
+
     /* Useful error strings:
      *
      * "Function " + func.name() + " has a void argument in position " + pos + "."
@@ -38,80 +47,107 @@ public class TypeChecker implements CommandVisitor {
      */
 
     public TypeChecker() {
-        typeMap = new HashMap<Command, Type>();
-        errorBuffer = new StringBuffer();
+        this(false);
+    }
+
+    // With explicitStack the tree is walked with a work stack on the heap instead of recursion
+    public TypeChecker(boolean explicitStack) {
+        typeOf = new Type[256];
+        errors = new ErrorLog();
+        traversal = new Traversal(this, explicitStack);
     }
 
-    private void reportError(int lineNum, int charPos, String message) {
-        errorBuffer.append("TypeError(" + lineNum + "," + charPos + ")");
-        errorBuffer.append("[" + message + "]" + "\n");
+    private void reportError(Command node, String message) {
+        errors.add(Diagnostic.typeError(node.nodes().source(), node.location(), message));
     }
 
     private void put(Command node, Type type) {
         if (type instanceof ErrorType) {
-            reportError(node.lineNumber(), node.charPosition(), ((ErrorType) type).getMessage());
+            reportError(node, ((ErrorType) type).getMessage());
         }
-        typeMap.put(node, type);
+        int id = node.id();
+        if (id >= typeOf.length)
+            typeOf = Arrays.copyOf(typeOf, Math.max(id + 1, 2 * typeOf.length));
+        typeOf[id] = type;
     }
 
+    // node has to be from the tree that was checked, not a copy of it in another representation
     public Type getType(Command node) {
-        return typeMap.get(node);
+        if (checked != null && node.nodes() != checked)
+            throw new IllegalArgumentException(node + " is not from the tree that was checked.");
+        int id = node.id();
+        return id < typeOf.length ? typeOf[id] : null;
     }
 
     public boolean check(Command ast) {
+        if (checked != null && ast.nodes() != checked)
+            throw new IllegalArgumentException("A TypeChecker only checks the nodes of one tree.");
+        checked = ast.nodes();
+        if (typeOf.length < ast.nodes().count())
+            typeOf = Arrays.copyOf(typeOf, ast.nodes().count());
         ast.accept(this);
         return !hasError();
     }
 
     public boolean hasError() {
-        return errorBuffer.length() != 0;
+        return !errors.isEmpty();
     }
 
     public String errorReport() {
-        return errorBuffer.toString();
+        return errors.toString();
+    }
+
+    public ErrorLog errors() {
+        return errors;
     }
 
     @Override
     public void visit(ExpressionList node) {
-        TypeList expressionTypes = new TypeList();
-        for (Expression argument : node) {
-            expressionTypes.append(visitAndGetType(argument));
-        }
-        put(node, expressionTypes);
+        for (Expression argument : node)
+            traversal.walk(argument);
+
+        traversal.then(() -> {
+            Type[] expressionTypes = new Type[node.size()];
+            int i = 0;
+            for (Expression argument : node) {
+                expressionTypes[i++] = getType((Command) argument);
+            }
+            put(node, Types.list(expressionTypes));
+        });
     }
 
     @Override
     public void visit(DeclarationList node) {
         for (Declaration declaration : node) {
-            declaration.accept(this);
+            traversal.walk(declaration);
         }
     }
 
     @Override
     public void visit(StatementList node) {
         for (Statement statement : node) {
-            statement.accept(this);
+            traversal.walk(statement);
         }
     }
 
     @Override
     public void visit(AddressOf node) {
-        put(node, new AddressType(node.symbol().type()));
+        put(node, Types.address(node.symbol().type()));
     }
 
     @Override
     public void visit(LiteralBool node) {
-        put(node, new BoolType());
+        put(node, BOOL);
     }
 
     @Override
     public void visit(LiteralFloat node) {
-        put(node, new FloatType());
+        put(node, FLOAT);
     }
 
     @Override
     public void visit(LiteralInt node) {
-        put(node, new IntType());
+        put(node, INT);
     }
 
     @Override
@@ -150,7 +186,7 @@ public class TypeChecker implements CommandVisitor {
 
         //If its the main function then check that is matches the correct signature
         if (node.function().name().equals("main")) {
-            if (!returnType.equivalent(VOID) || !new TypeList().equivalent(parameterTypeList))
+            if (!returnType.equivalent(VOID) || !Types.NO_TYPES.equivalent(parameterTypeList))
                 put(node, new ErrorType("Function main has invalid signature."));
             else
                 put(node, node.function().type());
@@ -177,144 +213,188 @@ public class TypeChecker implements CommandVisitor {
         currentFunction = node.function();
 
         //Now we need to check the body of the function for errors like wrong return type, no returned value, etc.
-        node.body().accept(this);
+        traversal.walk(node.body());
 
-        //If not all code paths return a value and the return type is something other than void
-        if (!containsReturn(node.body()) && !currentReturnType.equivalent(VOID))
-            put(node, new ErrorType("Not all paths in function " + currentFunction.name() + " have a return."));
-        else
-            put(node, currentReturnType);
+        traversal.then(() -> {
+            //If not all code paths return a value and the return type is something other than void
+            if (!containsReturn(node.body()) && !currentReturnType.equivalent(VOID))
+                put(node, new ErrorType("Not all paths in function " + currentFunction.name() + " have a return."));
+            else
+                put(node, currentReturnType);
 
-        currentReturnType = null;
-        currentFunction = null;
+            currentReturnType = null;
+            currentFunction = null;
+        });
     }
 
     @Override
     public void visit(Comparison node) {
-        Type left = visitAndGetType(node.leftSide());
-        Type right = visitAndGetType(node.rightSide());
-        put(node, left.compare(right));
+        traversal.walk(node.leftSide());
+        traversal.walk(node.rightSide());
+        traversal.then(() -> put(node, typeOf(node.leftSide()).compare(typeOf(node.rightSide()))));
     }
 
     @Override
     public void visit(Addition node) {
-        Type left = visitAndGetType(node.leftSide());
-        Type right = visitAndGetType(node.rightSide());
-        put(node, left.add(right));
+        traversal.walk(node.leftSide());
+        traversal.walk(node.rightSide());
+        traversal.then(() -> put(node, typeOf(node.leftSide()).add(typeOf(node.rightSide()))));
     }
 
     @Override
     public void visit(Subtraction node) {
-        Type left = visitAndGetType(node.leftSide());
-        Type right = visitAndGetType(node.rightSide());
-        put(node, left.sub(right));
+        traversal.walk(node.leftSide());
+        traversal.walk(node.rightSide());
+        traversal.then(() -> put(node, typeOf(node.leftSide()).sub(typeOf(node.rightSide()))));
     }
 
     @Override
     public void visit(Multiplication node) {
-        Type left = visitAndGetType(node.leftSide());
-        Type right = visitAndGetType(node.rightSide());
-        put(node, left.mul(right));
+        traversal.walk(node.leftSide());
+        traversal.walk(node.rightSide());
+        traversal.then(() -> put(node, typeOf(node.leftSide()).mul(typeOf(node.rightSide()))));
     }
 
     @Override
     public void visit(Division node) {
-        Type left = visitAndGetType(node.leftSide());
-        Type right = visitAndGetType(node.rightSide());
-        put(node, left.div(right));
+        traversal.walk(node.leftSide());
+        traversal.walk(node.rightSide());
+        traversal.then(() -> put(node, typeOf(node.leftSide()).div(typeOf(node.rightSide()))));
     }
 
     @Override
     public void visit(LogicalAnd node) {
-        Type left = visitAndGetType(node.leftSide());
-        Type right = visitAndGetType(node.rightSide());
-        put(node, left.and(right));
+        traversal.walk(node.leftSide());
+        traversal.walk(node.rightSide());
+        traversal.then(() -> put(node, typeOf(node.leftSide()).and(typeOf(node.rightSide()))));
     }
 
     @Override
     public void visit(LogicalOr node) {
-        Type left = visitAndGetType(node.leftSide());
-        Type right = visitAndGetType(node.rightSide());
-        put(node, left.or(right));
+        traversal.walk(node.leftSide());
+        traversal.walk(node.rightSide());
+        traversal.then(() -> put(node, typeOf(node.leftSide()).or(typeOf(node.rightSide()))));
     }
 
     @Override
     public void visit(LogicalNot node) {
-        Type type = visitAndGetType(node.expression());
-        put(node, type.not());
+        traversal.walk(node.expression());
+        traversal.then(() -> put(node, typeOf(node.expression()).not()));
     }
 
     @Override
     public void visit(Dereference node) {
-        Type type = visitAndGetType(node.expression());
-        put(node, type.deref());
+        traversal.walk(node.expression());
+        traversal.then(() -> put(node, typeOf(node.expression()).deref()));
     }
 
     @Override
     public void visit(Index node) {
-        Type baseType = visitAndGetType(node.base());
-        Type indexType = visitAndGetType(node.amount());
-        put(node, baseType.index(indexType));
+        traversal.walk(node.base());
+        traversal.walk(node.amount());
+        traversal.then(() -> put(node, typeOf(node.base()).index(typeOf(node.amount()))));
     }
 
     @Override
     public void visit(Assignment node) {
-        Type left = visitAndGetType(node.destination());
-        Type right = visitAndGetType(node.source());
-        put(node, left.assign(right));
+        traversal.walk(node.destination());
+        traversal.walk(node.source());
+        traversal.then(() -> put(node, typeOf(node.destination()).assign(typeOf(node.source()))));
     }
 
     @Override
     public void visit(Call node) {
-        Type argumentsTypeList = visitAndGetType(node.arguments());
-        put(node, node.function().type().call(argumentsTypeList));
+        traversal.walk(node.arguments());
+        traversal.then(() -> put(node, node.function().type().call(typeOf(node.arguments()))));
     }
 
     @Override
     public void visit(IfElseBranch node) {
-        Type conditionType = visitAndGetType(node.condition());
-        if (!conditionType.equivalent(BOOL))
-            put(node, new ErrorType("IfElseBranch requires bool condition not " + conditionType + "."));
-        else {
-            node.thenBlock().accept(this);
-            node.elseBlock().accept(this);
-        }
+        traversal.walk(node.condition());
+        traversal.then(() -> {
+            Type conditionType = typeOf(node.condition());
+            if (!conditionType.equivalent(BOOL))
+                put(node, new ErrorType("IfElseBranch requires bool condition not " + conditionType + "."));
+            else {
+                traversal.walk(node.thenBlock());
+                traversal.walk(node.elseBlock());
+            }
+        });
     }
 
     @Override
     public void visit(WhileLoop node) {
-        Type conditionType = visitAndGetType(node.condition());
-        if (!conditionType.equivalent(BOOL))
-            put(node, new ErrorType("WhileLoop requires bool condition not " + conditionType + "."));
-        else {
-            node.body().accept(this);
-        }
+        traversal.walk(node.condition());
+        traversal.then(() -> {
+            Type conditionType = typeOf(node.condition());
+            if (!conditionType.equivalent(BOOL))
+                put(node, new ErrorType("WhileLoop requires bool condition not " + conditionType + "."));
+            else {
+                traversal.walk(node.body());
+            }
+        });
     }
 
     @Override
     public void visit(Return node) {
-        Type returnType = visitAndGetType(node.argument());
-        if (!returnType.equivalent(currentReturnType))
-            put(node, new ErrorType("Function " + currentFunction.name() + " returns " + currentReturnType
-                    + " not " + returnType + "."));
-        else
-            put(node, returnType);
+        traversal.walk(node.argument());
+        traversal.then(() -> {
+            Type returnType = typeOf(node.argument());
+            if (!returnType.equivalent(currentReturnType))
+                put(node, new ErrorType("Function " + currentFunction.name() + " returns " + currentReturnType
+                        + " not " + returnType + "."));
+            else
+                put(node, returnType);
+        });
     }
 
+    // A list returns if it has a return, or an if where both blocks return.
+    // The blocks of nested ifs are worked out before the list they are in, using a stack
+    // instead of recursion so deeply nested ifs can't overflow the thread's stack.
     private boolean containsReturn(StatementList statementList) {
-        for (Statement statement : statementList) {
-            if (statement instanceof Return) {
-                return true;
+        IdentityHashMap<StatementList, Boolean> returns = new IdentityHashMap<>();
+        ArrayDeque<StatementList> pending = new ArrayDeque<>();
+        pending.push(statementList);
+        while (!pending.isEmpty()) {
+            StatementList list = pending.peek();
+            boolean ready = true;
+            boolean listReturns = false;
+            for (Statement statement : list) {
+                if (statement instanceof Return) {
+                    listReturns = true;
+                    break;
+                }
+                if (statement instanceof IfElseBranch) {
+                    IfElseBranch branch = (IfElseBranch) statement;
+                    Boolean ifReturns = returns.get(branch.thenBlock());
+                    Boolean elseReturns = returns.get(branch.elseBlock());
+                    if (ifReturns == null || elseReturns == null) {
+                        ready = false;
+                    } else if (ifReturns && elseReturns) {
+                        listReturns = true;
+                        break;
+                    }
+                }
             }
-            if (statement instanceof IfElseBranch) {
-                IfElseBranch branch = (IfElseBranch) statement;
-                boolean ifReturns = containsReturn(branch.thenBlock());
-                boolean elseReturns = containsReturn(branch.elseBlock());
-                if (ifReturns && elseReturns)
-                    return true;
+
+            if (ready || listReturns) {
+                returns.put(list, listReturns);
+                pending.pop();
+                continue;
+            }
+
+            //Come back to this list once the blocks it is waiting on are done
+            for (Statement statement : list) {
+                if (statement instanceof IfElseBranch) {
+                    IfElseBranch branch = (IfElseBranch) statement;
+                    if (!returns.containsKey(branch.thenBlock()))
+                        pending.push(branch.thenBlock());
+                    if (!returns.containsKey(branch.elseBlock()))
+                        pending.push(branch.elseBlock());
+                }
             }
         }
-        return false;
+        return returns.get(statementList);
     }
 
     @Override
@@ -322,8 +402,7 @@ public class TypeChecker implements CommandVisitor {
         put(node, new ErrorType(node.message()));
     }
 
-    private Type visitAndGetType(Visitable node) {
-        node.accept(this);
+    private Type typeOf(Visitable node) {
         return getType((Command) node);
     }
 }
@@ -1,21 +1,39 @@
 package types;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.List;
 
 public class TypeList extends Type implements Iterable<Type> {
     
-    private List<Type> list;
+    private final Type[] list;
     
-    public TypeList()
+    // Made through Types.list, so there is one instance of each list of types
+    TypeList(Type[] list)
     {
-        list = new ArrayList<Type>();
+        this.list = list;
     }
     
-    public void append(Type type)
+    // The list with type added to the end
+    public TypeList append(Type type)
     {
-        list.add(type);
+        Type[] appended = Arrays.copyOf(list, list.length + 1);
+        appended[list.length] = type;
+        return Types.list(appended);
+    }
+    
+    public int size()
+    {
+        return list.length;
+    }
+    
+    @Override
+    boolean hasError()
+    {
+        for (Type type : list) {
+            if (type.hasError())
+                return true;
+        }
+        return false;
     }
     
     @Override
@@ -23,37 +41,17 @@ public class TypeList extends Type implements Iterable<Type> {
     {
         StringBuilder sb = new StringBuilder();
         sb.append("TypeList(");
-        for (int i=0; i<list.size()-1; ++i)
-            sb.append(list.get(i) + ", ");
-        if (list.size() >= 1)
-            sb.append(list.get(list.size()-1));
+        for (int i=0; i<list.length-1; ++i)
+            sb.append(list[i] + ", ");
+        if (list.length >= 1)
+            sb.append(list[list.length-1]);
         sb.append(")");
         return sb.toString();
     }
     
-    @Override
-    public boolean equivalent(Type that) {
-        if (that == null)
-            return false;
-        if (!(that instanceof TypeList))
-            return false;
-        
-        List<Type> olist = ((TypeList)that).list;
-        
-        if (list.size() != olist.size())
-            return false;
-        
-        for (int i=0; i<list.size(); ++i)
-        {
-            if (!list.get(i).equivalent(olist.get(i)))
-                return false;
-        }
-        return true;
-    }
-    
     @Override
     public Iterator<Type> iterator()
     {
-        return list.iterator();
+        return Arrays.asList(list).iterator();
     }
 }
@@ -0,0 +1,91 @@
+package types;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+// Every type but ErrorType has exactly one instance, made here. A composite type is looked up
+// by its parts, which are canonical themselves, so two types are structurally the same exactly
+// when they are the same object and equivalent() is a comparison of references.
+// A type with an ErrorType in it is made new every time instead. Each error has a message of its
+// own, so the table would only fill up with them, and an error is never equivalent to a real type.
+// The table is safe to use from several threads, for bodies that are parsed or resolved in parallel.
+public final class Types {
+
+    public static final IntType INT = new IntType();
+    public static final FloatType FLOAT = new FloatType();
+    public static final BoolType BOOL = new BoolType();
+    public static final VoidType VOID = new VoidType();
+    public static final TypeList NO_TYPES = new TypeList(new Type[0]);
+
+    //What a composite type is made of. The types in it are canonical, so they are compared by
+    //reference and hashed by identity, never by walking their structure.
+    private static final class Key {
+        private final String kind;
+        //The extent of an array type, 0 for the others
+        private final int extent;
+        private final Type[] types;
+        private final int hash;
+
+        Key(String kind, int extent, Type... types) {
+            this.kind = kind;
+            this.extent = extent;
+            this.types = types;
+            int hash = 31 * kind.hashCode() + extent;
+            for (Type type : types)
+                hash = 31 * hash + System.identityHashCode(type);
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key))
+                return false;
+            Key that = (Key) object;
+            if (!kind.equals(that.kind) || extent != that.extent || types.length != that.types.length)
+                return false;
+            for (int i = 0; i < types.length; i++) {
+                if (types[i] != that.types[i])
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    private static final ConcurrentHashMap<Key, Type> canonical = new ConcurrentHashMap<Key, Type>();
+
+    private Types() {
+    }
+
+    public static ArrayType array(int extent, Type base) {
+        if (base.hasError())
+            return new ArrayType(extent, base);
+        return (ArrayType) canonical.computeIfAbsent(new Key("array", extent, base), key -> new ArrayType(extent, base));
+    }
+
+    public static AddressType address(Type base) {
+        if (base.hasError())
+            return new AddressType(base);
+        return (AddressType) canonical.computeIfAbsent(new Key("address", 0, base), key -> new AddressType(base));
+    }
+
+    public static FuncType func(TypeList args, Type returnType) {
+        if (args.hasError() || returnType.hasError())
+            return new FuncType(args, returnType);
+        return (FuncType) canonical.computeIfAbsent(new Key("func", 0, args, returnType), key -> new FuncType(args, returnType));
+    }
+
+    public static TypeList list(Type... types) {
+        if (types.length == 0)
+            return NO_TYPES;
+        Type[] list = types.clone();
+        for (Type type : list) {
+            if (type.hasError())
+                return new TypeList(list);
+        }
+        return (TypeList) canonical.computeIfAbsent(new Key("list", 0, list), key -> new TypeList(list));
+    }
+}
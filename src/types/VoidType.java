@@ -2,7 +2,8 @@ package types;
 
 public class VoidType extends Type {
     
-    public VoidType()
+    // The one instance is Types.VOID
+    VoidType()
     {
     }
     
@@ -11,14 +12,4 @@ public class VoidType extends Type {
     {
         return "void";
     }
-    
-    @Override
-    public boolean equivalent(Type that)
-    {
-        if (that == null)
-            return false;
-        if (!(that instanceof VoidType))
-            return false;
-        return true;
-    }
 }
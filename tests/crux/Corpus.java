@@ -0,0 +1,25 @@
+package crux;
+
+import java.io.File;
+
+// The test programs under tests/, shared by the test classes
+final class Corpus {
+
+    private Corpus() {
+    }
+
+    // tests/dir/testNN.crx
+    static File file(String dir, int i) {
+        return file(dir, i, ".crx");
+    }
+
+    static File file(String dir, int i, String extension) {
+        return new File((i < 10 ? "tests/" + dir + "/test0" : "tests/" + dir + "/test") + i + extension);
+    }
+
+    static String print(ast.Command tree) {
+        ast.PrettyPrinter printer = new ast.PrettyPrinter();
+        tree.accept(printer);
+        return printer.toString();
+    }
+}
@@ -0,0 +1,115 @@
+package crux;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static crux.Corpus.print;
+
+public class TestErrorRecovery {
+
+    private static final String PROGRAM =
+            "var a : int;\n" +
+            "var b : int\n" +
+            "func f(x : int) : int {\n" +
+            "  let a = x + ;\n" +
+            "  if a > 1 {\n" +
+            "    let a = (a * 2;\n" +
+            "    return a;\n" +
+            "  }\n" +
+            "  return x;\n" +
+            "}\n" +
+            "let a = 1;\n" +
+            "func main() : void {\n" +
+            "  ::f(1 2);\n" +
+            "  ::printInt(::f(a));\n" +
+            "}\n";
+
+    private static Parser parser(String text, int maxErrors, boolean explicitStack) {
+        Parser parser = new Parser(TokenBuffer.scan(Source.of(text)));
+        parser.setMaxErrors(maxErrors);
+        parser.setExplicitStack(explicitStack);
+        parser.setTrace(true);
+        return parser;
+    }
+
+    @Test
+    public void reportsEverySyntaxError() {
+        Parser parser = parser(PROGRAM, 100, false);
+        ast.Command tree = parser.parse();
+
+        Assert.assertEquals("The errors do not match",
+                "SyntaxError(3,1)[Expected SEMICOLON but got FUNC.]\n" +
+                "SyntaxError(4,15)[Expected a token from EXPRESSION3 but got SEMICOLON.]\n" +
+                "SyntaxError(6,19)[Expected CLOSE_PAREN but got SEMICOLON.]\n" +
+                "SyntaxError(11,1)[Expected EOF but got LET.]\n" +
+                "SyntaxError(13,9)[Expected CLOSE_PAREN but got INTEGER.]\n",
+                parser.errorReport());
+        Assert.assertTrue("The tree is missing its declarations", tree instanceof ast.DeclarationList);
+        Assert.assertEquals("There should be an ast.Error for every syntax error",
+                5, print(tree).split("SyntaxError", -1).length - 1);
+
+        //The first error is the one a parse that stops at it reports
+        Parser first = parser(PROGRAM, 1, false);
+        Assert.assertTrue(first.parse() instanceof ast.Error);
+        Assert.assertEquals("SyntaxError(3,1)[Expected SEMICOLON but got FUNC.]\n", first.errorReport());
+    }
+
+    @Test
+    public void reportsAMissingBraceOnce() {
+        String text =
+                "func f(x : int) : int {\n" +
+                "  if x > 1 {\n" +
+                "    while x > 2 {\n" +
+                "      let x = x - ;\n" +
+                "func main() : void {\n" +
+                "  ::printInt(1);\n" +
+                "}\n";
+        for (boolean explicitStack : new boolean[]{false, true}) {
+            Parser parser = parser(text, 100, explicitStack);
+            ast.Command tree = parser.parse();
+
+            //The while, the if and the function body all end at the func, it is one mistake
+            Assert.assertEquals("The errors do not match",
+                    "SyntaxError(4,19)[Expected a token from EXPRESSION3 but got SEMICOLON.]\n" +
+                    "SyntaxError(5,1)[Expected CLOSE_BRACE but got FUNC.]\n",
+                    parser.errorReport());
+            Assert.assertTrue("main should still be parsed", print(tree).contains("Symbol(main:"));
+        }
+    }
+
+    @Test
+    public void stopsAtMaxErrors() {
+        Parser parser = parser(PROGRAM, 3, false);
+        ast.Command tree = parser.parse();
+        Assert.assertTrue("The parse should give up", tree instanceof ast.Error);
+        Assert.assertEquals("Only three errors should be reported", 3, parser.errorReport().split("\n").length);
+    }
+
+    @Test
+    public void explicitStackRecoversTheSameWay() {
+        String[] fragments = {"func", "var", "array", "x", "main", ":", ";", "{", "}", "(", ")", "[", "]",
+                "::f", "let", "=", "if", "else", "while", "return", "not", "+", "*", "<", "1", "2.5", "true", ",", "int"};
+        Random random = new Random(13);
+        for (int i = 0; i < 500; i++) {
+            StringBuilder text = new StringBuilder("func f(x : int) : int { return x; }\n");
+            int length = random.nextInt(80);
+            for (int t = 0; t < length; t++)
+                text.append(fragments[random.nextInt(fragments.length)]).append(' ');
+
+            for (int maxErrors : new int[]{1, 4, 1000}) {
+                Parser recursive = parser(text.toString(), maxErrors, false);
+                String recursiveTree = print(recursive.parse());
+                Parser explicit = parser(text.toString(), maxErrors, true);
+                String explicitTree = print(explicit.parse());
+
+                Assert.assertEquals("The errors do not match for " + text, recursive.errorReport(), explicit.errorReport());
+                Assert.assertEquals("The trees do not match for " + text, recursiveTree, explicitTree);
+                Assert.assertEquals("The parse trees do not match for " + text, recursive.parseTreeReport(), explicit.parseTreeReport());
+                Assert.assertTrue("Too many errors for " + text,
+                        recursive.errorReport().split("SyntaxError", -1).length - 1 <= maxErrors);
+            }
+        }
+    }
+}
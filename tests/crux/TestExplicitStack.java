@@ -0,0 +1,110 @@
+package crux;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import static crux.Corpus.file;
+
+public class TestExplicitStack {
+
+    private static final int DEPTH = 100000;
+
+    // Everything the compiler reports for a source in one mode, phase by phase
+    private static String compile(Source source, boolean explicitStack, boolean print) {
+        StringBuilder result = new StringBuilder();
+
+        Parser parser = new Parser(TokenBuffer.scan(source));
+        parser.setExplicitStack(explicitStack);
+        ast.Command tree = parser.parse();
+        result.append(parser.errorReport()).append("\n=====\n");
+        if (parser.hasError())
+            return result.toString();
+
+        if (print) {
+            ast.PrettyPrinter printer = new ast.PrettyPrinter(explicitStack);
+            tree.accept(printer);
+            result.append(printer).append("\n=====\n");
+        }
+
+        types.TypeChecker checker = new types.TypeChecker(explicitStack);
+        checker.check(tree);
+        result.append(checker.errorReport()).append("\n=====\n");
+        if (checker.hasError())
+            return result.toString();
+
+        mips.CodeGen generator = new mips.CodeGen(checker, explicitStack);
+        generator.generate(tree);
+        result.append(generator.errorReport()).append("\n=====\n");
+
+        ByteArrayOutputStream asm = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(asm);
+        generator.getProgram().print(out);
+        out.flush();
+        return result.append(asm).toString();
+    }
+
+    @Test
+    public void runTestCases() throws IOException {
+        for (String dir : new String[]{"parser", "ast", "types", "mips"}) {
+            for (int i = 1; file(dir, i).exists(); i++) {
+                File in = file(dir, i);
+                Source source = Source.readFile(in);
+                Assert.assertEquals("The explicit stack output does not match for file " + dir + "/" + in.getName(),
+                        compile(source, false, true), compile(source, true, true));
+            }
+        }
+    }
+
+    private static String deeplyNested(int depth) {
+        StringBuilder program = new StringBuilder();
+
+        //Every path returns, through ifs nested depth deep
+        program.append("func nested():int {\n");
+        for (int i = 0; i < depth; i++)
+            program.append("if true {\n");
+        program.append("return 1;\n");
+        for (int i = 0; i < depth; i++)
+            program.append("} else { return 0; }\n");
+        program.append("}\n");
+
+        program.append("func main():void {\n");
+        program.append("var b:bool;\nvar i:int;\n");
+        program.append("let b = ").append("not ".repeat(depth)).append("true;\n");
+        program.append("let i = ").append("(".repeat(depth)).append("1").append(")".repeat(depth)).append(";\n");
+        for (int i = 0; i < depth; i++)
+            program.append("while true {\n");
+        program.append("let i = ::nested();\n");
+        program.append("}\n".repeat(depth));
+        program.append("}\n");
+        return program.toString();
+    }
+
+    @Test
+    public void compilesDeepNestingOnASmallStack() throws Throwable {
+        Source source = Source.of(deeplyNested(DEPTH));
+        String[] result = new String[1];
+        Throwable[] failure = new Throwable[1];
+
+        //Far too small a stack for recursion DEPTH levels deep
+        Thread thread = new Thread(null, () -> {
+            try {
+                result[0] = compile(source, true, false);
+            } catch (Throwable e) {
+                failure[0] = e;
+            }
+        }, "small-stack", 256 * 1024);
+        thread.start();
+        thread.join();
+
+        if (failure[0] != null)
+            throw failure[0];
+        Assert.assertTrue("The nested program did not compile:\n" + result[0].substring(0, 200),
+                result[0].startsWith("\n=====\n\n=====\n\n=====\n"));
+        Assert.assertTrue("There is no code for main", result[0].contains("main:"));
+    }
+}
@@ -0,0 +1,130 @@
+package crux;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TestFlatSymbolTable {
+
+    private static Symbol symbol(String name) {
+        return new Symbol(name, types.Types.INT);
+    }
+
+    private static String lookup(SymbolTable table, String name) {
+        try {
+            return table.lookup(name).toString();
+        } catch (SymbolNotFoundError e) {
+            return "not found";
+        }
+    }
+
+    private static String lookup(FlatSymbolTable table, String name) {
+        try {
+            return table.lookup(name).toString();
+        } catch (SymbolNotFoundError e) {
+            return "not found";
+        }
+    }
+
+    private static String insert(SymbolTable table, Symbol symbol) {
+        try {
+            return table.insert(symbol).toString();
+        } catch (RedeclarationError e) {
+            return e.getMessage();
+        }
+    }
+
+    private static String insert(FlatSymbolTable table, Symbol symbol) {
+        try {
+            return table.insert(symbol).toString();
+        } catch (RedeclarationError e) {
+            return e.getMessage();
+        }
+    }
+
+    // Random scopes, declarations and lookups on a chain of tables and on a flat one
+    @Test
+    public void matchesTheChainedTable() {
+        Random random = new Random(19);
+        for (int run = 0; run < 200; run++) {
+            SymbolTable chained = new SymbolTable(null, 0);
+            FlatSymbolTable flat = new FlatSymbolTable();
+            int names = 1 + random.nextInt(100);
+
+            for (int step = 0; step < 2000; step++) {
+                String name = "n" + random.nextInt(names);
+                switch (random.nextInt(6)) {
+                    case 0:
+                        chained = new SymbolTable(chained, chained.getDepth() + 1);
+                        flat.enterScope();
+                        break;
+                    case 1:
+                        if (chained.getDepth() > 0) {
+                            chained = chained.getParentTable();
+                            flat.exitScope();
+                        }
+                        break;
+                    case 2:
+                    case 3:
+                        Symbol symbol = symbol(name);
+                        Assert.assertEquals(insert(chained, symbol), insert(flat, symbol));
+                        break;
+                    default:
+                        Assert.assertEquals(lookup(chained, name), lookup(flat, name));
+                }
+                Assert.assertEquals(chained.getDepth(), flat.getDepth());
+            }
+            Assert.assertEquals(chained.toString(), flat.toString());
+        }
+    }
+
+    // A detached table keeps seeing the globals as they were when it was detached
+    @Test
+    public void detachedTablesSeeTheGlobalsAsTheyWere() {
+        FlatSymbolTable table = new FlatSymbolTable();
+        table.insert(symbol("a"));
+        table.enterScope();
+        table.insert(symbol("x"));
+        table.insert(symbol("b"));
+        FlatSymbolTable body = table.detach();
+        table.exitScope();
+        table.insert(symbol("b"));
+        table.insert(symbol("c"));
+
+        Assert.assertEquals("Symbol(a:int)", lookup(body, "a"));
+        Assert.assertEquals("Symbol(x:int)", lookup(body, "x"));
+        Assert.assertEquals("not found", lookup(body, "c"));
+        Assert.assertEquals(1, body.getDepth());
+        Assert.assertEquals("Symbol(a:int)\n  Symbol(x:int)\n  Symbol(b:int)\n", body.toString());
+
+        body.enterScope();
+        Assert.assertEquals("Symbol(a:int)", insert(body, symbol("a")));
+        Assert.assertEquals("Symbol(a:int)\nSymbol(b:int)\nSymbol(c:int)\n", table.toString());
+    }
+
+    // Scopes print the table as it was when they were taken
+    @Test
+    public void scopesKeepTheTableAsItWas() {
+        FlatSymbolTable table = new FlatSymbolTable();
+        Symbol f = new Symbol("f", null);
+        table.insertUntyped(f);
+        table.enterScope();
+        table.insert(symbol("a"));
+        FlatSymbolTable.Scopes header = table.scopes();
+
+        table.setType(f, types.Types.VOID);
+        table.enterScope();
+        table.insert(symbol("b"));
+        FlatSymbolTable.Scopes block = table.scopes();
+        table.exitScope();
+        table.exitScope();
+        table.insert(symbol("g"));
+        table.enterScope();
+        table.insert(symbol("c"));
+
+        Assert.assertEquals("Symbol(f:null)\n  Symbol(a:int)\n", header.toString());
+        Assert.assertEquals("Symbol(f:void)\n  Symbol(a:int)\n    Symbol(b:int)\n", block.toString());
+        Assert.assertEquals("Symbol(f:void)\nSymbol(g:int)\n  Symbol(c:int)\n", table.toString());
+    }
+}
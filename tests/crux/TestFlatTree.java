@@ -0,0 +1,150 @@
+package crux;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import ast.FlatTree;
+
+import static crux.Corpus.file;
+
+public class TestFlatTree {
+
+    // The printed tree, the type errors and the code for a tree
+    private static String compile(ast.Command tree, boolean explicitStack) {
+        StringBuilder result = new StringBuilder();
+        ast.PrettyPrinter printer = new ast.PrettyPrinter(explicitStack);
+        tree.accept(printer);
+        result.append(printer).append("\n=====\n");
+
+        types.TypeChecker checker = new types.TypeChecker(explicitStack);
+        checker.check(tree);
+        result.append(checker.errorReport()).append("\n=====\n");
+        if (checker.hasError())
+            return result.toString();
+
+        mips.CodeGen generator = new mips.CodeGen(checker, explicitStack);
+        generator.generate(tree);
+        ByteArrayOutputStream asm = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(asm);
+        generator.getProgram().print(out);
+        out.flush();
+        return result.append(generator.errorReport()).append("\n=====\n").append(asm).toString();
+    }
+
+    private static ast.Command parse(Source source, int maxErrors) {
+        Parser parser = new Parser(TokenBuffer.scan(source));
+        parser.setMaxErrors(maxErrors);
+        return parser.parse();
+    }
+
+    @Test
+    public void drivesTheVisitorsTheSame() throws IOException {
+        for (String dir : new String[]{"parser", "symbols", "ast", "types", "mips"}) {
+            for (int i = 1; file(dir, i).exists(); i++) {
+                File in = file(dir, i);
+                Source source = Source.readFile(in);
+                for (boolean explicitStack : new boolean[]{false, true}) {
+                    String expected = compile(parse(source, 10), explicitStack);
+                    FlatTree flat = FlatTree.of(parse(source, 10));
+                    Assert.assertEquals("The flat tree does not match for file " + dir + "/" + in.getName(),
+                            expected, compile(flat.command(), explicitStack));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void cursorWalksInPreorder() {
+        Source source = Source.of("var g : int;\n" +
+                "func f(a : int) : int { if a < 2 { return a; } return ::f(a - 1) * g; }\n");
+        FlatTree flat = FlatTree.of(parse(source, 1));
+
+        FlatTree.Cursor cursor = flat.cursor();
+        Assert.assertEquals(FlatTree.Kind.DECLARATION_LIST, cursor.kind());
+        int count = 1;
+        while (cursor.next()) {
+            Assert.assertEquals(count, cursor.node());
+            count++;
+        }
+        Assert.assertEquals(flat.size(), count);
+        Assert.assertEquals(flat.size(), flat.end(flat.root()));
+        for (int n = 1; n < flat.size(); n++) {
+            int parent = flat.parent(n);
+            Assert.assertTrue("Node " + n + " is outside its parent's subtree", parent < n && flat.end(n) <= flat.end(parent));
+        }
+
+        cursor = flat.cursor();
+        Assert.assertTrue(cursor.firstChild());
+        Assert.assertEquals(FlatTree.Kind.VARIABLE_DECLARATION, cursor.kind());
+        Assert.assertEquals("g", cursor.symbol().name());
+        Assert.assertTrue(cursor.nextSibling());
+        Assert.assertEquals(FlatTree.Kind.FUNCTION_DEFINITION, cursor.kind());
+        Assert.assertEquals("f", cursor.symbol().name());
+        Assert.assertEquals(1, flat.arguments(cursor.node()).size());
+        Assert.assertFalse("f is the last declaration", cursor.nextSibling());
+
+        //The body, then the if and its comparison
+        Assert.assertTrue(cursor.firstChild());
+        Assert.assertTrue(cursor.firstChild());
+        Assert.assertEquals(FlatTree.Kind.IF_ELSE_BRANCH, cursor.kind());
+        Assert.assertTrue(cursor.firstChild());
+        Assert.assertEquals(FlatTree.Kind.COMPARISON, cursor.kind());
+        Assert.assertEquals(ast.Comparison.Operation.LT, cursor.operation());
+        Assert.assertTrue(cursor.firstChild());
+        Assert.assertTrue(cursor.nextSibling());
+        Assert.assertEquals(FlatTree.Kind.LITERAL_INT, cursor.kind());
+        Assert.assertEquals(2, cursor.intValue());
+        Assert.assertEquals(5, cursor.depth());
+
+        Assert.assertTrue(cursor.parent());
+        Assert.assertTrue(cursor.parent());
+        Assert.assertTrue(cursor.nextSibling());
+        Assert.assertEquals(FlatTree.Kind.RETURN, cursor.kind());
+        Assert.assertTrue(cursor.firstChild());
+        Assert.assertEquals(FlatTree.Kind.MULTIPLICATION, cursor.kind());
+        Assert.assertTrue(cursor.firstChild());
+        Assert.assertEquals(FlatTree.Kind.CALL, cursor.kind());
+        Assert.assertEquals("f", cursor.name());
+    }
+
+    @Test
+    public void checkerOnlyAnswersForTheTreeItChecked() {
+        Source source = Source.of("func main() : void { ::printInt(1 + 2); }\n");
+        ast.Command tree = parse(source, 1);
+        FlatTree flat = FlatTree.of(tree);
+        for (int n = 0; n < flat.size(); n++)
+            Assert.assertEquals(n, flat.node(n).id());
+
+        types.TypeChecker checker = new types.TypeChecker();
+        Assert.assertTrue(checker.check(tree));
+        try {
+            checker.getType(flat.node(flat.size() - 1));
+            Assert.fail("A node of the flat tree was typed by a checker of the object tree");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void flattensDeepTrees() {
+        StringBuilder text = new StringBuilder("func main() : void { ::printInt(");
+        for (int i = 0; i < 100000; i++)
+            text.append("(1 + ");
+        text.append("1");
+        for (int i = 0; i < 100000; i++)
+            text.append(")");
+        text.append("); }\n");
+
+        Parser parser = new Parser(TokenBuffer.scan(Source.of(text.toString())));
+        parser.setExplicitStack(true);
+        FlatTree flat = FlatTree.of(parser.parse());
+        Assert.assertEquals(flat.size(), flat.end(flat.root()));
+
+        types.TypeChecker checker = new types.TypeChecker(true);
+        Assert.assertTrue(checker.check(flat.command()));
+    }
+}
@@ -0,0 +1,110 @@
+package crux;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+public class TestInterner {
+
+    private static void givesDenseIds(Interner names) {
+        Source source = Source.of("alpha beta alpha gamma beta");
+        Assert.assertEquals(0, names.intern(source, 0, 5));
+        Assert.assertEquals(1, names.intern(source, 6, 10));
+        Assert.assertEquals(0, names.intern(source, 11, 16));
+        Assert.assertEquals(2, names.intern("gamma"));
+        Assert.assertEquals(2, names.intern(source, 17, 22));
+        Assert.assertEquals(1, names.intern(new String("beta")));
+        Assert.assertEquals(3, names.size());
+
+        //One String for each name
+        Assert.assertTrue(names.name(0) == names.name(names.intern(source, 11, 16)));
+        Assert.assertEquals("beta", names.name(1));
+
+        for (int i = 0; i < 10000; i++)
+            Assert.assertEquals(3 + i, names.intern("name" + i));
+        for (int i = 0; i < 10000; i++)
+            Assert.assertEquals("name" + i, names.name(3 + i));
+    }
+
+    @Test
+    public void nameTableGivesDenseIds() {
+        givesDenseIds(new NameTable());
+    }
+
+    @Test
+    public void concurrentNameTableGivesDenseIds() {
+        givesDenseIds(new ConcurrentNameTable());
+    }
+
+    // Threads interning the same names at once all get the same IDs, and no ID is skipped
+    @Test
+    public void concurrentNameTableAgreesAcrossThreads() {
+        ForkJoinPool pool = new ForkJoinPool(8);
+        for (int run = 0; run < 20; run++) {
+            ConcurrentNameTable names = new ConcurrentNameTable();
+            List<ForkJoinTask<int[]>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int offset = t;
+                tasks.add(pool.submit(() -> {
+                    int[] ids = new int[5000];
+                    for (int i = 0; i < ids.length; i++) {
+                        int name = (i * 7 + offset) % ids.length;
+                        ids[name] = names.intern("n" + name);
+                    }
+                    return ids;
+                }));
+            }
+
+            int[] first = tasks.get(0).join();
+            for (ForkJoinTask<int[]> task : tasks)
+                Assert.assertTrue("The threads got different IDs", Arrays.equals(first, task.join()));
+            Assert.assertEquals(first.length, names.size());
+            for (int name = 0; name < first.length; name++)
+                Assert.assertEquals("n" + name, names.name(first[name]));
+        }
+        pool.shutdown();
+    }
+
+    // Sources sharing an interner give the same name the same ID and String
+    @Test
+    public void sourcesShareTheCompilationsNames() {
+        Interner names = new NameTable();
+        Source a = Source.of("var total : int;");
+        Source b = Source.of("let total = 1;");
+        a.setInterner(names);
+        b.setInterner(names);
+
+        Assert.assertEquals(a.nameId(4, 9), b.nameId(4, 9));
+        Assert.assertTrue(a.intern(4, 9) == b.intern(4, 9));
+    }
+
+    // An edit is the same source later on, its names keep their IDs
+    @Test
+    public void editsKeepTheInterner() {
+        Interner names = new NameTable();
+        Source a = Source.of("var total : int;");
+        a.setInterner(names);
+        Source edited = a.edit(0, 0, "\n");
+
+        Assert.assertSame("The edit has another interner", names, edited.interner());
+        Assert.assertEquals(a.nameId(4, 9), edited.nameId(5, 10));
+    }
+
+    // Parallel bodies intern names from several threads at once
+    @Test
+    public void parallelBodiesNeedAConcurrentTable() {
+        Source source = Source.of("func main() : void { }");
+        source.setInterner(new NameTable());
+        Parser parser = new Parser(TokenBuffer.scan(source));
+        try {
+            parser.setParallelBodies(ForkJoinPool.commonPool());
+            Assert.fail("A NameTable was taken for parallel bodies");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
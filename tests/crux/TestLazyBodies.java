@@ -0,0 +1,74 @@
+package crux;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static crux.Corpus.file;
+import static crux.Corpus.print;
+
+public class TestLazyBodies {
+
+    private static Parser parser(Source source, boolean lazyBodies) {
+        Parser parser = new Parser(TokenBuffer.scan(source));
+        parser.setLazyBodies(lazyBodies);
+        return parser;
+    }
+
+    @Test
+    public void runTestCases() throws IOException {
+        for (String dir : new String[]{"ast", "types", "mips"}) {
+            for (int i = 1; file(dir, i).exists(); i++) {
+                File in = file(dir, i);
+                Source source = Source.readFile(in);
+
+                Parser eager = parser(source, false);
+                String expected = print(eager.parse());
+
+                //Printing parses every body in order
+                Parser lazy = parser(source, true);
+                String output = print(lazy.parse());
+
+                Assert.assertEquals("The trees do not match for file " + dir + "/" + in.getName(), expected, output);
+                Assert.assertEquals("The errors do not match for file " + dir + "/" + in.getName(), eager.errorReport(), lazy.errorReport());
+            }
+        }
+    }
+
+    @Test
+    public void bodiesAreOnlyParsedWhenAskedFor() {
+        String text = "func f() : int { var a : int; let a = ; }\n" +
+                "func main() : void { ::printInt(::f()); }\n";
+        Parser parser = parser(Source.of(text), true);
+        ast.DeclarationList program = (ast.DeclarationList) parser.parse();
+        Assert.assertFalse("The bodies should not have been parsed", parser.hasError());
+
+        ast.FunctionDefinition f = (ast.FunctionDefinition) program.iterator().next();
+        Assert.assertEquals("f", f.function().name());
+        Assert.assertTrue(f.body().iterator().next() instanceof ast.Error);
+        Assert.assertEquals("SyntaxError(1,39)[Expected a token from EXPRESSION3 but got SEMICOLON.]\n", parser.errorReport());
+    }
+
+    @Test
+    public void bodiesSeeTheScopeTheyWereIn() {
+        //b is declared after f, so f's body can't use it even though it is parsed after
+        String text = "var a : int;\n" +
+                "func f() : int { return a + b; }\n" +
+                "var b : int;\n" +
+                "func main() : void { ::printInt(::f()); }\n";
+
+        Parser eager = parser(Source.of(text), false);
+        String expected = print(eager.parse());
+
+        Parser lazy = parser(Source.of(text), true);
+        ast.Command tree = lazy.parse();
+        Assert.assertFalse("The bodies should not have been parsed", lazy.hasError());
+        String output = print(tree);
+
+        Assert.assertTrue(eager.errorReport().startsWith("ResolveSymbolError(2,29)[Could not find b.]"));
+        Assert.assertEquals(eager.errorReport(), lazy.errorReport());
+        Assert.assertEquals(expected, output);
+    }
+}
@@ -0,0 +1,140 @@
+package crux;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static crux.Corpus.file;
+
+public class TestParallelBodies {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    // The errors, the tree and the rule events of a parse
+    private static String parse(Source source, ForkJoinPool pool, int maxErrors, boolean explicitStack) {
+        Parser parser = new Parser(TokenBuffer.scan(source));
+        parser.setParallelBodies(pool);
+        parser.setMaxErrors(maxErrors);
+        parser.setExplicitStack(explicitStack);
+        parser.setTrace(true);
+        ast.Command tree = parser.parse();
+
+        ast.PrettyPrinter printer = new ast.PrettyPrinter();
+        tree.accept(printer);
+        return parser.errorReport() + "\n=====\n" + printer + "\n=====\n" + parser.parseTreeReport();
+    }
+
+    @Test
+    public void runTestCases() throws IOException {
+        for (String dir : new String[]{"parser", "symbols", "ast", "types", "mips"}) {
+            for (int i = 1; file(dir, i).exists(); i++) {
+                File in = file(dir, i);
+                Source source = Source.readFile(in);
+                for (int maxErrors : new int[]{1, 10})
+                    Assert.assertEquals("The parallel parse does not match for file " + dir + "/" + in.getName(),
+                            parse(source, null, maxErrors, false), parse(source, POOL, maxErrors, false));
+            }
+        }
+    }
+
+    // The type errors, or the code, of a tree from a parse. The checker keeps types by node ID,
+    // so bodies parsed at the same time must not give two nodes the same one.
+    private static String compile(Source source, ForkJoinPool pool) {
+        Parser parser = new Parser(TokenBuffer.scan(source));
+        parser.setParallelBodies(pool);
+        ast.Command tree = parser.parse();
+        Assert.assertFalse("There should be no syntax errors", parser.hasError());
+
+        types.TypeChecker checker = new types.TypeChecker();
+        if (!checker.check(tree))
+            return checker.errorReport();
+        mips.CodeGen codeGen = new mips.CodeGen(checker);
+        codeGen.generate(tree);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codeGen.getProgram().print(new PrintStream(out));
+        return out.toString();
+    }
+
+    @Test
+    public void compilesTheSameAsTheSequentialParse() throws IOException {
+        for (String dir : new String[]{"types", "mips"}) {
+            for (int i = 1; file(dir, i).exists(); i++) {
+                File in = file(dir, i);
+                Assert.assertEquals("The parallel compile does not match for file " + dir + "/" + in.getName(),
+                        compile(Source.readFile(in), null), compile(Source.readFile(in), POOL));
+            }
+        }
+    }
+
+    private static final String[] NOISE = {"{", "}", ";", "let", "var", "+", "(", "func"};
+
+    // Lots of functions using globals from before and after them, with some tokens dropped or
+    // added so there are syntax errors too
+    private static String randomProgram(Random random) {
+        List<String> tokens = new ArrayList<>();
+        int globals = 0;
+        int functions = 2 + random.nextInt(30);
+        for (int f = 0; f < functions; f++) {
+            if (random.nextInt(3) == 0)
+                add(tokens, "var g" + globals++ + " : int ;");
+            add(tokens, "func f" + random.nextInt(functions) + " ( a : int , b : bool ) : int {");
+            int statements = random.nextInt(8);
+            for (int s = 0; s < statements; s++) {
+                switch (random.nextInt(5)) {
+                    case 0:
+                        add(tokens, "var v" + random.nextInt(3) + " : int ;");
+                        break;
+                    case 1:
+                        add(tokens, "let g" + random.nextInt(globals + 2) + " = a + v" + random.nextInt(3) + " ;");
+                        break;
+                    case 2:
+                        add(tokens, "if b { let a = ::f" + random.nextInt(functions) + "( a , b ) ; } else { return a ; }");
+                        break;
+                    case 3:
+                        add(tokens, "while b { var w : int ; let w = w * g" + random.nextInt(globals + 1) + " ; }");
+                        break;
+                    default:
+                        add(tokens, "return a ;");
+                }
+            }
+            add(tokens, "}");
+        }
+
+        int mutations = random.nextInt(4);
+        for (int m = 0; m < mutations; m++) {
+            int at = random.nextInt(tokens.size());
+            if (random.nextBoolean())
+                tokens.remove(at);
+            else
+                tokens.add(at, NOISE[random.nextInt(NOISE.length)]);
+        }
+        return String.join(" ", tokens);
+    }
+
+    private static void add(List<String> tokens, String text) {
+        for (String token : text.split(" "))
+            tokens.add(token);
+    }
+
+    @Test
+    public void matchesTheSequentialParse() {
+        Random random = new Random(17);
+        for (int i = 0; i < 500; i++) {
+            String text = randomProgram(random);
+            Source source = Source.of(text);
+            for (int maxErrors : new int[]{1, 3, 100}) {
+                boolean explicitStack = random.nextBoolean();
+                Assert.assertEquals("The parallel parse does not match for\n" + text,
+                        parse(source, null, maxErrors, explicitStack), parse(source, POOL, maxErrors, explicitStack));
+            }
+        }
+    }
+}
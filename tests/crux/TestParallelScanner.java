@@ -0,0 +1,59 @@
+package crux;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class TestParallelScanner {
+
+    private static List<String> sequential(Source source) {
+        List<String> output = new ArrayList<>();
+        crux.Scanner s = new crux.Scanner(source);
+        Token t = s.next();
+        while (!t.is(Token.Kind.EOF)) {
+            output.add(t.toString());
+            t = s.next();
+        }
+        output.add(t.toString());
+        return output;
+    }
+
+    private static List<String> parallel(Source source, int chunks) {
+        List<String> output = new ArrayList<>();
+        for (Token t : new ParallelScanner(source, ForkJoinPool.commonPool(), chunks).scan())
+            output.add(t.toString());
+        return output;
+    }
+
+    @Test
+    public void runTestCases() throws IOException {
+
+        StringBuilder everything = new StringBuilder();
+        for (int i = 1; i <= 33; i++) {
+            File in = new File((i < 10 ? "tests/tokenizer/test0" : "tests/tokenizer/test") + i + ".crx");
+            String text = new String(Files.readAllBytes(in.toPath()));
+            if (!text.endsWith("\n"))
+                text += "\n";
+            everything.append(text);
+
+            Source source = Source.of(text);
+            for (int chunks = 1; chunks <= 4; chunks++)
+                Assert.assertEquals("The parallel output does not match for file " + in.getName(), sequential(source), parallel(source, chunks));
+        }
+
+        //Repeat the whole corpus so that every chunk is large
+        String text = everything.toString();
+        for (int i = 0; i < 5; i++)
+            text += text;
+        Source source = Source.of(text);
+        List<String> expected = sequential(source);
+        for (int chunks = 1; chunks <= 16; chunks *= 2)
+            Assert.assertEquals("The parallel output does not match for " + chunks + " chunks", expected, parallel(source, chunks));
+    }
+}
@@ -0,0 +1,108 @@
+package crux;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static crux.Corpus.file;
+
+public class TestParseTrace {
+
+    private static List<String> nonEmptyLines(String text) {
+        List<String> lines = new ArrayList<>();
+        for (String line : text.split("\n")) {
+            if (!line.trim().isEmpty())
+                lines.add(line);
+        }
+        return lines;
+    }
+
+    @Test
+    public void reportMatchesTheParseTrees() throws IOException {
+        for (int i = 1; file("parser", i, ".crx").exists(); i++) {
+            List<String> expected = nonEmptyLines(new String(Files.readAllBytes(file("parser", i, ".out").toPath())));
+            //Only the files that are nothing but a parse tree
+            if (!expected.stream().allMatch(line -> line.trim().matches("[A-Z0-9_]+")))
+                continue;
+
+            Parser parser = new Parser(TokenBuffer.scan(Source.readFile(file("parser", i, ".crx"))));
+            parser.setTrace(true);
+            parser.parse();
+            Assert.assertEquals("The parse tree does not match for file test" + i, expected, nonEmptyLines(parser.parseTreeReport()));
+        }
+    }
+
+    @Test
+    public void eventsAreBalanced() throws IOException {
+        for (int i = 1; file("ast", i, ".crx").exists(); i++) {
+            Parser parser = new Parser(TokenBuffer.scan(Source.readFile(file("ast", i, ".crx"))));
+            parser.setTrace(true);
+            parser.parse();
+            Assert.assertFalse("File test" + i + " did not parse", parser.hasError());
+
+            ParseTrace trace = parser.parseTrace();
+            List<Integer> open = new ArrayList<>();
+            int lastToken = 0;
+            for (int e = 0; e < trace.size(); e++) {
+                Assert.assertTrue("The token index went back", trace.token(e) >= lastToken);
+                lastToken = trace.token(e);
+
+                if (trace.isEnter(e)) {
+                    Assert.assertEquals(open.size(), trace.depth(e));
+                    open.add(e);
+                } else {
+                    int enter = open.remove(open.size() - 1);
+                    Assert.assertEquals(trace.rule(enter), trace.rule(e));
+                    Assert.assertEquals(open.size(), trace.depth(e));
+                }
+            }
+            Assert.assertTrue("Some rules were never left", open.isEmpty());
+        }
+    }
+
+    @Test
+    public void recordsJfrEvents() throws IOException {
+        Source source = Source.readFile(file("ast", 1, ".crx"));
+        Path dump = Files.createTempFile("crux-parse", ".jfr");
+        Parser parser = new Parser(TokenBuffer.scan(source));
+
+        try (Recording recording = new Recording()) {
+            recording.enable("crux.ParseRule").withThreshold(java.time.Duration.ZERO);
+            recording.start();
+            parser.setParseListener(new JfrParseListener());
+            parser.parse();
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        int rules = 0;
+        for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+            if (event.getEventType().getName().equals("crux.ParseRule"))
+                rules++;
+        }
+        Files.delete(dump);
+
+        //A listener alone doesn't keep the events
+        Assert.assertTrue("The listener kept a trace", parser.parseTrace() == null);
+        Parser traced = new Parser(TokenBuffer.scan(source));
+        traced.setTrace(true);
+        traced.parse();
+
+        int entered = 0;
+        ParseTrace trace = traced.parseTrace();
+        for (int e = 0; e < trace.size(); e++) {
+            if (trace.isEnter(e))
+                entered++;
+        }
+        Assert.assertEquals("There should be one event for every rule", entered, rules);
+    }
+}
@@ -34,6 +34,7 @@ public class TestParser {
             try {
                 s = new crux.Scanner(new FileReader(in));
                 Parser p = new Parser(s);
+                p.setTrace(true);
 
                 if(i == 9)
                     i = 9;
@@ -0,0 +1,104 @@
+package crux;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import static crux.Corpus.file;
+import static crux.Corpus.print;
+
+public class TestResolver {
+
+    private static ast.Command unresolved(Source source) {
+        Parser parser = new Parser(TokenBuffer.scan(source));
+        parser.setResolveSymbols(false);
+        ast.Command tree = parser.parse();
+        Assert.assertFalse("There should be no syntax errors", parser.hasError());
+        return tree;
+    }
+
+    @Test
+    public void runTestCases() throws IOException {
+        for (String dir : new String[]{"symbols", "ast", "types", "mips"}) {
+            for (int i = 1; file(dir, i).exists(); i++) {
+                File in = file(dir, i);
+                Source source = Source.readFile(in);
+
+                Parser parser = new Parser(TokenBuffer.scan(source));
+                String expected = print(parser.parse());
+
+                ast.Command tree = unresolved(source);
+                Resolver resolver = new Resolver(source.interner());
+                resolver.resolve(tree);
+
+                Assert.assertEquals("The errors do not match for file " + dir + "/" + in.getName(), parser.errorReport(), resolver.errorReport());
+                Assert.assertEquals("The trees do not match for file " + dir + "/" + in.getName(), expected, print(tree));
+            }
+        }
+    }
+
+    @Test
+    public void resolvesTheSameTreeAgain() throws IOException {
+        for (int i = 1; file("symbols", i).exists(); i++) {
+            Source source = Source.readFile(file("symbols", i));
+            ast.Command tree = unresolved(source);
+
+            Resolver first = new Resolver(source.interner());
+            first.resolve(tree);
+            String expected = print(tree);
+
+            Resolver second = new Resolver(source.interner());
+            second.resolve(tree);
+
+            Assert.assertEquals(first.errorReport(), second.errorReport());
+            Assert.assertEquals(expected, print(tree));
+        }
+    }
+
+    @Test
+    public void resolvesBodiesInParallel() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        for (String dir : new String[]{"symbols", "mips"}) {
+            for (int i = 1; file(dir, i).exists(); i++) {
+                Source source = Source.readFile(file(dir, i));
+
+                ast.Command tree = unresolved(source);
+                Resolver sequential = new Resolver(source.interner());
+                sequential.resolve(tree);
+                String expected = print(tree);
+
+                tree = unresolved(source);
+                Resolver parallel = new Resolver(source.interner());
+                parallel.setParallelBodies(pool);
+                parallel.resolve(tree);
+
+                Assert.assertEquals(sequential.errorReport(), parallel.errorReport());
+                Assert.assertEquals(expected, print(tree));
+            }
+        }
+    }
+
+    @Test
+    public void parserLeavesNamesUnbound() {
+        String text = "var a : int;\n" +
+                "func main() : void { let a = b; }\n";
+        Source source = Source.of(text);
+        ast.DeclarationList program = (ast.DeclarationList) unresolved(source);
+        ast.FunctionDefinition main = null;
+        for (ast.Declaration declaration : program)
+            if (declaration instanceof ast.FunctionDefinition)
+                main = (ast.FunctionDefinition) declaration;
+        ast.Assignment assignment = (ast.Assignment) main.body().iterator().next();
+        ast.AddressOf target = (ast.AddressOf) assignment.destination();
+        Assert.assertEquals("a", target.name());
+        Assert.assertTrue(target.symbol() == null);
+
+        Resolver resolver = new Resolver(source.interner());
+        Assert.assertFalse("b is not declared", resolver.resolve(program));
+        Assert.assertEquals("a", target.symbol().name());
+        Assert.assertTrue(resolver.errorReport().startsWith("ResolveSymbolError(2,30)[Could not find b.]"));
+    }
+}
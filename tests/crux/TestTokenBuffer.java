@@ -0,0 +1,115 @@
+package crux;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static crux.Corpus.file;
+
+public class TestTokenBuffer {
+
+    @Test
+    public void runTestCases() throws IOException {
+
+        for (int i = 1; i <= 33; i++) {
+            File in = file("tokenizer", i);
+
+            List<String> expected = new ArrayList<>();
+            crux.Scanner s = new crux.Scanner(new FileReader(in));
+            Token t = s.next();
+            while (!t.is(Token.Kind.EOF)) {
+                expected.add(t.toString());
+                t = s.next();
+            }
+            expected.add(t.toString());
+
+            TokenBuffer buffer = TokenBuffer.scan(Source.readFile(in));
+            List<String> output = new ArrayList<>();
+            for (int j = 0; j < buffer.size(); j++) {
+                output.add(buffer.token(j).toString());
+                Assert.assertEquals("The lexeme does not match for file " + in.getName(), buffer.token(j).lexeme(), buffer.lexeme(j));
+            }
+
+            Assert.assertEquals("The buffered tokens do not match for file " + in.getName(), expected, output);
+        }
+    }
+
+    @Test
+    public void parsesTheSameTree() throws IOException {
+
+        for (int i = 1; i <= 10; i++) {
+            File in = file("ast", i);
+
+            Parser p = new Parser(new crux.Scanner(new FileReader(in)));
+            ast.Command tree = p.parse();
+            ast.PrettyPrinter expected = new ast.PrettyPrinter();
+            tree.accept(expected);
+
+            Parser buffered = new Parser(TokenBuffer.scan(Source.readFile(in)));
+            tree = buffered.parse();
+            ast.PrettyPrinter output = new ast.PrettyPrinter();
+            tree.accept(output);
+
+            Assert.assertEquals("The error reports do not match for file " + in.getName(), p.errorReport(), buffered.errorReport());
+            Assert.assertEquals("The trees do not match for file " + in.getName(), expected.toString(), output.toString());
+        }
+    }
+
+    @Test
+    public void parsingAgainNumbersFromZero() throws IOException {
+
+        for (int i = 1; i <= 10; i++) {
+            File in = file("ast", i);
+            TokenBuffer buffer = TokenBuffer.scan(Source.readFile(in));
+
+            ast.Command first = new Parser(buffer).parse();
+            ast.Command second = new Parser(buffer).parse();
+
+            Assert.assertEquals("The root IDs do not match for file " + in.getName(), first.id(), second.id());
+            Assert.assertEquals("The node counts do not match for file " + in.getName(), first.nodes().count(), second.nodes().count());
+        }
+    }
+
+    @Test
+    public void relexesEdits() throws IOException {
+
+        //Edits made of characters that start and end tokens and comments
+        String[] snippets = {"", " ", "\n", "/", "//", "!", "=", "1", ".", "5.", "x", "var", "a b", "// c\n", "\n\n"};
+        java.util.Random random = new java.util.Random(9);
+
+        for (int i = 1; i <= 33; i++) {
+            File in = file("tokenizer", i);
+            String text = new String(Files.readAllBytes(in.toPath()));
+            TokenBuffer buffer = TokenBuffer.scan(Source.of(text));
+
+            for (int e = 0; e < 200; e++) {
+                int offset = random.nextInt(text.length() + 1);
+                int removed = random.nextInt(Math.min(4, text.length() - offset) + 1);
+                String inserted = snippets[random.nextInt(snippets.length)];
+
+                TokenBuffer.Change change = buffer.edit(offset, removed, inserted);
+                text = text.substring(0, offset) + inserted + text.substring(offset + removed);
+                TokenBuffer expected = TokenBuffer.scan(Source.of(text));
+
+                String where = " for file " + in.getName() + " after edit " + e;
+                Assert.assertEquals("The tokens do not match" + where, tokens(expected), tokens(change.buffer()));
+                Assert.assertEquals("The unchanged tokens are counted wrong" + where,
+                        buffer.size() - change.oldEnd(), change.buffer().size() - change.newEnd());
+                buffer = change.buffer();
+            }
+        }
+    }
+
+    private static List<String> tokens(TokenBuffer buffer) {
+        List<String> tokens = new ArrayList<>();
+        for (int j = 0; j < buffer.size(); j++)
+            tokens.add(buffer.token(j) + "@" + buffer.start(j));
+        return tokens;
+    }
+}
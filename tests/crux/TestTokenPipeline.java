@@ -0,0 +1,93 @@
+package crux;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static crux.Corpus.file;
+
+public class TestTokenPipeline {
+
+    private static List<String> scanned(Source source) {
+        List<String> tokens = new ArrayList<>();
+        crux.Scanner s = new crux.Scanner(source);
+        Token t;
+        do {
+            t = s.next();
+            tokens.add(t.toString());
+        } while (!t.is(Token.Kind.EOF));
+        return tokens;
+    }
+
+    private static List<String> piped(Source source) {
+        List<String> tokens = new ArrayList<>();
+        TokenPipeline pipeline = new TokenPipeline(new crux.Scanner(source));
+        while (pipeline.kind() != Token.Kind.EOF) {
+            tokens.add(pipeline.token().toString());
+            pipeline.advance();
+        }
+        tokens.add(pipeline.token().toString());
+        return tokens;
+    }
+
+    @Test
+    public void runTestCases() throws IOException {
+
+        StringBuilder corpus = new StringBuilder();
+        for (int i = 1; i <= 33; i++) {
+            File in = file("tokenizer", i);
+            String text = new String(Files.readAllBytes(in.toPath()));
+            corpus.append(text).append('\n');
+
+            Assert.assertEquals("The piped tokens do not match for file " + in.getName(), scanned(Source.of(text)), piped(Source.of(text)));
+        }
+
+        //Big enough to go around the ring many times
+        String big = corpus.toString().repeat(64);
+        Assert.assertEquals("The piped tokens do not match for the whole corpus", scanned(Source.of(big)), piped(Source.of(big)));
+    }
+
+    @Test
+    public void parsesTheSameTree() throws IOException {
+
+        for (int i = 1; i <= 10; i++) {
+            File in = file("ast", i);
+
+            Parser p = new Parser(new crux.Scanner(new FileReader(in)));
+            ast.Command tree = p.parse();
+            ast.PrettyPrinter expected = new ast.PrettyPrinter();
+            tree.accept(expected);
+
+            Parser piped = new Parser(new TokenPipeline(new crux.Scanner(Source.readFile(in))));
+            tree = piped.parse();
+            ast.PrettyPrinter output = new ast.PrettyPrinter();
+            tree.accept(output);
+
+            Assert.assertEquals("The error reports do not match for file " + in.getName(), p.errorReport(), piped.errorReport());
+            Assert.assertEquals("The trees do not match for file " + in.getName(), expected.toString(), output.toString());
+        }
+    }
+
+    @Test
+    public void stopsScanningWhenTheParseQuits() throws InterruptedException {
+        //The error is near the start and the rest is far more than the ring holds
+        StringBuilder text = new StringBuilder("func main() : void { let = ; }\n");
+        for (int i = 0; i < 20000; i++)
+            text.append("var v").append(i).append(" : int;\n");
+
+        TokenPipeline pipeline = new TokenPipeline(new crux.Scanner(Source.of(text.toString())));
+        Parser parser = new Parser(pipeline);
+        parser.parse();
+        Assert.assertTrue(parser.hasError());
+
+        for (int wait = 0; wait < 200 && pipeline.scanning(); wait++)
+            Thread.sleep(10);
+        Assert.assertFalse("The scanner thread is still running", pipeline.scanning());
+    }
+}
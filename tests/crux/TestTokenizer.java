@@ -58,4 +58,80 @@ public class TestTokenizer {
             }
         }
     }
+
+    private static List<String> tokens(crux.Scanner s) {
+        List<String> output = new ArrayList<>();
+        Token t = s.next();
+        while (!t.is(Token.Kind.EOF)) {
+            output.add(t.toString());
+            t = s.next();
+        }
+        output.add(t.toString());
+        return output;
+    }
+
+    @Test
+    public void runTestCasesInMemory() throws IOException {
+
+        //The goldens don't all match the Reader based Scanner (see runTestCases), so every mode
+        //is held to what it scans instead
+        for (int i = 1; i <= 33; i++) {
+            File in = new File((i < 10 ? "tests/tokenizer/test0" : "tests/tokenizer/test") + i + ".crx");
+            List<String> expected = tokens(new crux.Scanner(new FileReader(in)));
+
+            for (crux.Scanner.Input mode : crux.Scanner.Input.values()) {
+                List<String> output = tokens(crux.Scanner.open(in.getPath(), mode));
+                Assert.assertEquals("The output does not match for file " + in.getName() + " in mode " + mode, expected, output);
+            }
+        }
+    }
+
+    @Test
+    public void longRunsOfComments() {
+
+        //Every comment line used to add a stack frame to the Scanner
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200000; i++)
+            sb.append("// comment line ").append(i).append('\n');
+        sb.append("      \t  x");
+
+        crux.Scanner s = new crux.Scanner(Source.of(sb.toString()));
+        Assert.assertEquals("IDENTIFIER(x)(lineNum:200001, charPos:10)", s.next().toString());
+        Assert.assertEquals("EOF(lineNum:200001, charPos:11)", s.next().toString());
+    }
+
+    @Test
+    public void numberValuesMatchTheLexeme() {
+
+        //The Scanner works the values out itself, they have to agree with parsing the lexeme
+        java.util.Random random = new java.util.Random(8);
+        StringBuilder sb = new StringBuilder("0 2147483647 2147483648 99999999999 0.0 1. 16777216.0 16777217.0 0.1 3.4028235 ");
+        for (int i = 0; i < 20000; i++) {
+            sb.append(random.nextInt(1 << random.nextInt(31))).append(' ');
+            String digits = "000".substring(random.nextInt(4)) + Long.toString((random.nextLong() >>> 1) >>> random.nextInt(63));
+            int point = random.nextInt(digits.length());
+            sb.append(digits, 0, point + 1).append('.').append(digits, point + 1, random.nextInt(digits.length() - point) + point + 1).append(' ');
+        }
+
+        crux.Scanner s = new crux.Scanner(Source.of(sb.toString()));
+        for (Token token = s.next(); !token.is(Token.Kind.EOF); token = s.next()) {
+            if (token.is(Token.Kind.FLOAT)) {
+                Assert.assertEquals(token.lexeme(), Float.floatToIntBits(Float.parseFloat(token.lexeme())), Float.floatToIntBits(token.floatValue()));
+            } else {
+                Integer expected;
+                try {
+                    expected = Integer.parseInt(token.lexeme());
+                } catch (NumberFormatException e) {
+                    expected = null;
+                }
+                Integer actual;
+                try {
+                    actual = token.intValue();
+                } catch (NumberFormatException e) {
+                    actual = null;
+                }
+                Assert.assertEquals(token.lexeme(), expected, actual);
+            }
+        }
+    }
 }
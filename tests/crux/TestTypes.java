@@ -0,0 +1,64 @@
+package crux;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import types.ErrorType;
+import types.Type;
+import types.TypeList;
+import types.Types;
+
+public class TestTypes {
+
+    @Test
+    public void sameStructureIsTheSameType() {
+        Assert.assertTrue(Types.array(3, Types.array(2, Types.INT)) == Types.array(3, Types.array(2, Types.INT)));
+        Assert.assertTrue(Types.address(Types.FLOAT) == Types.address(Types.FLOAT));
+        Assert.assertTrue(Types.list(Types.INT, Types.BOOL) == Types.NO_TYPES.append(Types.INT).append(Types.BOOL));
+        Assert.assertTrue(Types.list() == Types.NO_TYPES);
+        Assert.assertTrue(Types.func(Types.list(Types.INT), Types.VOID) == Types.func(Types.NO_TYPES.append(Types.INT), Types.VOID));
+        Assert.assertTrue(Type.getBaseType("int") == Types.INT);
+
+        Assert.assertFalse("Different extents", Types.array(3, Types.INT).equivalent(Types.array(4, Types.INT)));
+        Assert.assertFalse("Different bases", Types.address(Types.INT).equivalent(Types.address(Types.BOOL)));
+        Assert.assertFalse("Different orders", Types.list(Types.INT, Types.BOOL).equivalent(Types.list(Types.BOOL, Types.INT)));
+        Assert.assertFalse("Different returns", Types.func(Types.NO_TYPES, Types.INT).equivalent(Types.func(Types.NO_TYPES, Types.VOID)));
+    }
+
+    @Test
+    public void operationsGiveTheCanonicalTypes() {
+        Assert.assertTrue(Types.INT.add(Types.INT) == Types.INT);
+        Assert.assertTrue(Types.FLOAT.compare(Types.FLOAT) == Types.BOOL);
+        Type matrix = Types.array(3, Types.array(2, Types.FLOAT));
+        Assert.assertTrue(Types.address(matrix).index(Types.INT) == Types.address(Types.array(2, Types.FLOAT)));
+        TypeList arguments = Types.list(Types.INT, Types.FLOAT);
+        Assert.assertTrue(Types.func(arguments, Types.BOOL).call(Types.NO_TYPES.append(Types.INT).append(Types.FLOAT)) == Types.BOOL);
+        Assert.assertEquals("TypeList(int, float)", arguments.toString());
+    }
+
+    @Test
+    public void typesWithErrorsAreNotKept() {
+        ErrorType error = new ErrorType("Cannot add int with bool.");
+        Assert.assertFalse("An address of an error was kept", Types.address(error) == Types.address(error));
+        Assert.assertFalse("A list with an error was kept", Types.list(Types.INT, error) == Types.list(Types.INT, error));
+        TypeList nested = Types.list(Types.address(Types.array(2, error)));
+        Assert.assertFalse("A function with an error was kept", Types.func(nested, Types.VOID) == Types.func(nested, Types.VOID));
+        Assert.assertFalse("An error is equivalent to a real type", Types.address(error).equivalent(Types.address(Types.INT)));
+
+        //The parts of a key are compared by reference, not by what they print as
+        Assert.assertTrue(Types.list(Types.address(Types.INT)) == Types.list(Types.address(Types.INT)));
+        Assert.assertFalse("Different lists are the same", Types.list(Types.INT) == Types.list(Types.FLOAT));
+    }
+
+    @Test
+    public void arraysKnowTheirSize() {
+        Assert.assertEquals(4, Types.BOOL.numBytes());
+        Assert.assertEquals(24, Types.array(3, Types.array(2, Types.INT)).numBytes());
+        try {
+            Types.array(2, Types.VOID).numBytes();
+            Assert.fail("void has no size");
+        } catch (RuntimeException e) {
+            Assert.assertEquals("No size known for void", e.getMessage());
+        }
+    }
+}
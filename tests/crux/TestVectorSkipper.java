@@ -0,0 +1,72 @@
+package crux;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+public class TestVectorSkipper {
+
+    //Blanks, the newline, comment characters, letters and characters around the vector ranges
+    private static final char[] CHARS = {' ', '\t', '\n', '\r', 0x0B, 0x0C, 0x1C, 0x1F, 0x08, 0x0E, 0x1B, 0x21,
+            '/', '*', 'a', 0x7F, 0x80, 0x85, 0xA0, 0x109, 0x120, 0x2028, 0x3000, 0x7FFF, 0x8000, 0x8009, 0xFFFF};
+
+    // The VectorSkipper, loaded by name like Skipper does. Null when the module or the class is
+    // missing, then there is nothing to compare.
+    private static Skipper vectorSkipper() {
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+            return null;
+        try {
+            return (Skipper) Class.forName("crux.VectorSkipper").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static String text(Random random, int length, int alphabet) {
+        StringBuilder text = new StringBuilder();
+        //Long runs of blanks so the vector loop gets past its first step
+        int blanks = random.nextInt(length + 1);
+        for (int i = 0; i < blanks; i++)
+            text.append(CHARS[random.nextInt(8)]);
+        while (text.length() < length)
+            text.append(CHARS[random.nextInt(alphabet)]);
+        return text.toString();
+    }
+
+    private static void compare(Skipper vector, Source source, Random random, String text) {
+        Skipper scalar = new Skipper();
+        for (int from = 0; from <= source.length(); from++) {
+            int end = from + random.nextInt(source.length() - from + 1);
+            String where = " from " + from + " to " + end + " in " + text.chars().mapToObj(Integer::toHexString).toList();
+            Assert.assertEquals("The blanks end somewhere else" + where,
+                    scalar.skipBlanks(source, from, end), vector.skipBlanks(source, from, end));
+            Assert.assertEquals("The newline is found somewhere else" + where,
+                    scalar.findNewline(source, from, end), vector.findNewline(source, from, end));
+        }
+    }
+
+    @Test
+    public void matchesTheScalarSkipper() throws IOException {
+        Skipper vector = vectorSkipper();
+        if (vector == null)
+            return;
+
+        Random random = new Random(5);
+        File file = File.createTempFile("skipper", ".crx");
+        file.deleteOnExit();
+        for (int i = 0; i < 2000; i++) {
+            String text = text(random, random.nextInt(200), CHARS.length);
+            compare(vector, Source.of(text), random, text);
+
+            //A mapped file has one byte per character, so only the characters up to 0xFF
+            String bytes = text(random, random.nextInt(200), 19);
+            Files.write(file.toPath(), bytes.getBytes(StandardCharsets.ISO_8859_1));
+            compare(vector, Source.mapFile(file), random, bytes);
+        }
+    }
+}
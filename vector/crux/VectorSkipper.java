@@ -0,0 +1,77 @@
+package crux;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Skipper that tests a full vector of characters per step (16 or 32 with AVX2).
+// Only ASCII blanks are recognised here, anything else stops the vector loop and is left
+// to the scalar loop, which also knows about the other Unicode whitespace characters.
+// Compiling and running this class needs --add-modules jdk.incubator.vector, so it is kept in
+// its own source root and compiled after src/, which builds without the module.
+final class VectorSkipper extends Skipper {
+
+    private static final VectorSpecies<Short> CHARS = ShortVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+
+    @Override
+    int skipBlanks(Source source, int from, int end) {
+        char[] chars = source.charArray();
+        if (chars != null) {
+            for (; from + CHARS.length() <= end; from += CHARS.length()) {
+                VectorMask<Short> stop = blanks(ShortVector.fromCharArray(CHARS, chars, from)).not();
+                if (stop.anyTrue())
+                    return super.skipBlanks(source, from + stop.firstTrue(), end);
+            }
+        } else {
+            ByteBuffer bytes = source.byteBuffer();
+            for (; from + BYTES.length() <= end; from += BYTES.length()) {
+                VectorMask<Byte> stop = blanks(ByteVector.fromByteBuffer(BYTES, bytes, from, ByteOrder.nativeOrder())).not();
+                if (stop.anyTrue())
+                    return super.skipBlanks(source, from + stop.firstTrue(), end);
+            }
+        }
+        return super.skipBlanks(source, from, end);
+    }
+
+    @Override
+    int findNewline(Source source, int from, int end) {
+        char[] chars = source.charArray();
+        if (chars != null) {
+            for (; from + CHARS.length() <= end; from += CHARS.length()) {
+                VectorMask<Short> newline = ShortVector.fromCharArray(CHARS, chars, from).compare(VectorOperators.EQ, (short) '\n');
+                if (newline.anyTrue())
+                    return from + newline.firstTrue();
+            }
+        } else {
+            ByteBuffer bytes = source.byteBuffer();
+            for (; from + BYTES.length() <= end; from += BYTES.length()) {
+                VectorMask<Byte> newline = ByteVector.fromByteBuffer(BYTES, bytes, from, ByteOrder.nativeOrder()).compare(VectorOperators.EQ, (byte) '\n');
+                if (newline.anyTrue())
+                    return from + newline.firstTrue();
+            }
+        }
+        return super.findNewline(source, from, end);
+    }
+
+    // The ASCII characters Character.isWhitespace accepts, minus the newline: 9, 11-13, 28-31 and 32.
+    // The lanes are signed: characters from 0x80 to 0x7FFF are above 32 and characters from 0x8000
+    // up are negative, so neither matches.
+    private static VectorMask<Short> blanks(ShortVector v) {
+        return v.compare(VectorOperators.EQ, (short) ' ')
+                .or(v.compare(VectorOperators.GE, (short) 9).and(v.compare(VectorOperators.LE, (short) 13)).and(v.compare(VectorOperators.NE, (short) '\n')))
+                .or(v.compare(VectorOperators.GE, (short) 28).and(v.compare(VectorOperators.LE, (short) 31)));
+    }
+
+    // Bytes past 0x7F are negative as signed lanes and never match.
+    private static VectorMask<Byte> blanks(ByteVector v) {
+        return v.compare(VectorOperators.EQ, (byte) ' ')
+                .or(v.compare(VectorOperators.GE, (byte) 9).and(v.compare(VectorOperators.LE, (byte) 13)).and(v.compare(VectorOperators.NE, (byte) '\n')))
+                .or(v.compare(VectorOperators.GE, (byte) 28).and(v.compare(VectorOperators.LE, (byte) 31)));
+    }
+}